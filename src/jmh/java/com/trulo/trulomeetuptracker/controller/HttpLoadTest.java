@@ -0,0 +1,400 @@
+package com.trulo.trulomeetuptracker.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trulo.trulomeetuptracker.TruloMeetupTrackerApplication;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Comparative load test for the servlet and reactive stacks of /api/meetups.
+ *
+ * Boots the whole application once per stack (the default profile, then {@code reactive})
+ * against the same MongoDB: an in-memory mongo-java-server unless {@code load.mongo-uri} is set.
+ * Each run seeds its own database over HTTP ({@code load.users} users, each creating
+ * {@code load.meetups-per-user} meetups and inviting {@code load.invites} others), then keeps
+ * {@code load.concurrency} requests in flight, half GET /api/meetups and half
+ * GET /api/meetups/{id}, as random users. Afterwards every /api/auth and /api/meetups endpoint
+ * is called once, error cases included, and the statuses and response fields of both stacks
+ * are compared to check they keep the same JSON contract.
+ *
+ * Run with {@code mvn -P benchmarks test-compile exec:exec@http-load}; see the pom for the
+ * {@code load.*} settings.
+ */
+public class HttpLoadTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final int users = Integer.getInteger("load.users", 100);
+    private final int meetupsPerUser = Integer.getInteger("load.meetups-per-user", 5);
+    private final int invites = Integer.getInteger("load.invites", 10);
+    private final int concurrency = Integer.getInteger("load.concurrency", 64);
+    private final long warmupSeconds = Long.getLong("load.warmup-s", 10);
+    private final long durationSeconds = Long.getLong("load.duration-s", 30);
+    private final int port = Integer.getInteger("load.port", 5201);
+    private final String mongoUri = System.getProperty("load.mongo-uri", "");
+    private final String report = System.getProperty("load.report", "http-load");
+
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+
+    public static void main(String[] args) throws Exception {
+        new HttpLoadTest().run();
+        // With both Mongo drivers present, the reactive profile leaves a Netty event loop group
+        // of the driver running after the context is closed
+        System.exit(0);
+    }
+
+    private void run() throws Exception {
+        MongoServer mongoServer = null;
+        String uri = mongoUri;
+        if (uri.isEmpty()) {
+            mongoServer = new MongoServer(new MemoryBackend());
+            InetSocketAddress address = mongoServer.bind();
+            uri = "mongodb://" + address.getHostString() + ":" + address.getPort();
+        }
+
+        try {
+            Result servlet = runStack("servlet", uri, port);
+            Result reactive = runStack("reactive", uri, port + 1);
+
+            System.out.println();
+            System.out.println("HTTP load test: " + users + " users x " + meetupsPerUser + " meetups ("
+                    + invites + " invites each), " + concurrency + " requests in flight, "
+                    + durationSeconds + " s per stack");
+            System.out.printf("%-9s %10s %9s %9s %9s %9s %8s%n",
+                    "stack", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms", "errors");
+            servlet.print();
+            reactive.print();
+            printContractDiff(servlet.contract, reactive.contract);
+        } finally {
+            if (mongoServer != null) {
+                mongoServer.shutdownNow();
+            }
+        }
+    }
+
+    private Result runStack(String stack, String mongoUri, int stackPort) throws Exception {
+        String database = "trulo_load_" + stack;
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(TruloMeetupTrackerApplication.class);
+        if ("reactive".equals(stack)) {
+            builder.profiles("reactive");
+        }
+        // As arguments, since default properties would lose to application.properties
+        String[] args = {
+                "--server.port=" + stackPort,
+                "--spring.data.mongodb.uri=" + mongoUri + "/" + database,
+                // Text and unique indexes are not needed here, and the in-memory server lacks text indexes
+                "--spring.data.mongodb.auto-index-creation=false",
+                "--tracking.history.enabled=false",
+                "--logging.level.root=WARN",
+                "--spring.main.banner-mode=off"
+        };
+
+        System.out.println("Starting the " + stack + " stack on port " + stackPort);
+        try (ConfigurableApplicationContext context = builder.run(args)) {
+            context.getBean(MongoTemplate.class).getDb().drop();
+
+            String base = "http://127.0.0.1:" + stackPort + "/api";
+            Seed seed = seed(base);
+            Result result = drive(stack, base, seed);
+            result.contract.addAll(checkContract(base, seed));
+            return result;
+        }
+    }
+
+    // Users, meetups and invites, created through the API under test
+    private Seed seed(String base) {
+        Seed seed = new Seed();
+        List<String> userIds = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            Map<String, Object> register = Map.of(
+                    "username", "load" + i,
+                    "email", "load" + i + "@example.com",
+                    "password", "load-password-" + i,
+                    "displayName", "Load User " + i);
+            JsonNode response = send(request("POST", base + "/auth/register", null, register)).join();
+            seed.tokens.add(response.path("token").asText());
+            userIds.add(response.path("user").path("_id").asText());
+        }
+
+        Random random = new Random(42);
+        for (int i = 0; i < users; i++) {
+            String token = seed.tokens.get(i);
+            for (int m = 0; m < meetupsPerUser; m++) {
+                Map<String, Object> meetup = Map.of(
+                        "title", "Load meetup " + i + "-" + m,
+                        "description", "Created by the HTTP load test",
+                        "location", Map.of("name", "Load test", "address", "Somewhere",
+                                "coordinates", Map.of("latitude", 52.52, "longitude", 13.4)),
+                        "scheduledTime", System.currentTimeMillis() + random.nextInt(1_000_000_000));
+                JsonNode created = send(request("POST", base + "/meetups", token, meetup)).join();
+                String meetupId = created.path("meetup").path("_id").asText();
+                seed.meetupIds.add(meetupId);
+                seed.owners.add(i);
+                seed.inviteCodes.add(created.path("meetup").path("inviteCode").asText());
+
+                List<String> invited = new ArrayList<>();
+                for (int k = 0; k < invites; k++) {
+                    invited.add(userIds.get(random.nextInt(users)));
+                }
+                send(request("POST", base + "/meetups/" + meetupId + "/invite", token,
+                        Map.of("userIds", invited))).join();
+            }
+        }
+        return seed;
+    }
+
+    private Result drive(String stack, String base, Seed seed) throws Exception {
+        Recorder latency = new Recorder(3);
+        LongAdder completed = new LongAdder();
+        LongAdder errors = new LongAdder();
+        AtomicBoolean running = new AtomicBoolean(true);
+
+        // Closed loop: every finished request starts the next one
+        for (int i = 0; i < concurrency; i++) {
+            next(base, seed, latency, completed, errors, running);
+        }
+
+        Thread.sleep(TimeUnit.SECONDS.toMillis(warmupSeconds));
+        latency.getIntervalHistogram(); // discard the warmup
+        completed.reset();
+        errors.reset();
+        long start = System.nanoTime();
+
+        Thread.sleep(TimeUnit.SECONDS.toMillis(durationSeconds));
+        Histogram histogram = latency.getIntervalHistogram();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long count = completed.sum();
+        long failed = errors.sum();
+        running.set(false);
+        Thread.sleep(1000); // let in-flight requests drain before the stack shuts down
+
+        String file = report + "-" + stack + ".hgrm";
+        try (PrintStream out = new PrintStream(file)) {
+            histogram.outputPercentileDistribution(out, 1000.0);
+        }
+        return new Result(stack, count / seconds, histogram, failed);
+    }
+
+    /**
+     * Calls every endpoint once, including the error cases, after the load run since it
+     * modifies and deletes the first meetup.
+     * @return "name -> status type" and the response field paths of each call
+     */
+    private Set<String> checkContract(String base, Seed seed) throws Exception {
+        Set<String> contract = new TreeSet<>();
+        String creator = seed.tokens.get(0);
+        String meetup = base + "/meetups/" + seed.meetupIds.get(0);
+        String join = base + "/meetups/join/" + seed.inviteCodes.get(0);
+        Map<String, Object> register = Map.of(
+                "username", "outsider",
+                "email", "outsider@example.com",
+                "password", "outsider-password",
+                "displayName", "Outsider");
+
+        HttpResponse<byte[]> registered = call(contract, "POST /auth/register",
+                request("POST", base + "/auth/register", null, register));
+        String outsider = MAPPER.readTree(registered.body()).path("token").asText();
+        call(contract, "POST /auth/register (taken)", request("POST", base + "/auth/register", null, register));
+        call(contract, "POST /auth/login", request("POST", base + "/auth/login", null,
+                Map.of("email", "load0@example.com", "password", "load-password-0")));
+        call(contract, "POST /auth/login (wrong password)", request("POST", base + "/auth/login", null,
+                Map.of("email", "load0@example.com", "password", "wrong")));
+        call(contract, "GET /auth/me", request("GET", base + "/auth/me", creator, null));
+        call(contract, "PUT /auth/me", request("PUT", base + "/auth/me", creator,
+                Map.of("displayName", "Load User 0")));
+        call(contract, "GET /auth/users/search", request("GET", base + "/auth/users/search?query=load1",
+                creator, null));
+        call(contract, "GET /auth/users/search (short)", request("GET", base + "/auth/users/search?query=l",
+                creator, null));
+
+        call(contract, "GET /meetups (no token)", request("GET", base + "/meetups", null, null));
+        String pageEtag = call(contract, "GET /meetups", request("GET", base + "/meetups?limit=2", creator, null))
+                .headers().firstValue("ETag").orElse("");
+        call(contract, "GET /meetups (If-None-Match)",
+                conditional(request("GET", base + "/meetups?limit=2", creator, null), pageEtag));
+        call(contract, "GET /meetups (bad cursor)", request("GET", base + "/meetups?cursor=!!!", creator, null));
+        String etag = call(contract, "GET /meetups/{id}", request("GET", meetup, creator, null))
+                .headers().firstValue("ETag").orElse("");
+        call(contract, "GET /meetups/{id} (If-None-Match)", conditional(request("GET", meetup, creator, null), etag));
+        call(contract, "GET /meetups/{id} (not a participant)", request("GET", meetup, outsider, null));
+        call(contract, "GET /meetups/{id} (missing)",
+                request("GET", base + "/meetups/000000000000000000000000", creator, null));
+        call(contract, "GET /meetups/{id}/nearby", request("GET", meetup + "/nearby", creator, null));
+        call(contract, "GET /meetups/{id}/replay", request("GET", meetup + "/replay", creator, null));
+
+        call(contract, "POST /meetups/join/{code}", request("POST", join, outsider, null));
+        call(contract, "POST /meetups/join/{code} (again)", request("POST", join, outsider, null));
+        call(contract, "POST /meetups/join/{code} (unknown)",
+                request("POST", base + "/meetups/join/UNKNOWN0", outsider, null));
+        call(contract, "PATCH /meetups/{id}/status (not creator)", request("PATCH", meetup + "/status", outsider,
+                Map.of("status", "active")));
+        call(contract, "PATCH /meetups/{id}/status", request("PATCH", meetup + "/status", creator,
+                Map.of("status", "active")));
+        call(contract, "DELETE /meetups/{id}/leave", request("DELETE", meetup + "/leave", outsider, null));
+        call(contract, "DELETE /meetups/{id}/leave (creator)", request("DELETE", meetup + "/leave", creator, null));
+        call(contract, "DELETE /meetups/{id} (not creator)", request("DELETE", meetup, outsider, null));
+        call(contract, "DELETE /meetups/{id}", request("DELETE", meetup, creator, null));
+        call(contract, "DELETE /meetups/{id} (missing)", request("DELETE", meetup, creator, null));
+        call(contract, "POST /auth/logout", request("POST", base + "/auth/logout", creator, null));
+        return contract;
+    }
+
+    private HttpResponse<byte[]> call(Set<String> contract, String name, HttpRequest request) throws Exception {
+        HttpResponse<byte[]> response = http.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        String type = response.headers().firstValue("Content-Type").orElse("-").split(";")[0];
+        contract.add(name + " -> " + response.statusCode() + " " + type);
+        if (type.equals("application/json") && response.body().length > 0) {
+            contract.addAll(fieldPaths(name, MAPPER.readTree(response.body())));
+        }
+        return response;
+    }
+
+    private void next(String base, Seed seed, Recorder latency, LongAdder completed, LongAdder errors,
+            AtomicBoolean running) {
+        if (!running.get()) {
+            return;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        HttpRequest request;
+        if (random.nextBoolean()) {
+            request = request("GET", base + "/meetups?limit=20", seed.tokens.get(random.nextInt(seed.tokens.size())),
+                    null);
+        } else {
+            // As the meetup's creator, so the request is always allowed
+            int meetup = random.nextInt(seed.meetupIds.size());
+            request = request("GET", base + "/meetups/" + seed.meetupIds.get(meetup),
+                    seed.tokens.get(seed.owners.get(meetup)), null);
+        }
+
+        long start = System.nanoTime();
+        http.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray()).whenComplete((response, e) -> {
+            latency.recordValue(Math.max(0, (System.nanoTime() - start) / 1000));
+            if (e != null || response.statusCode() != 200) {
+                errors.increment();
+            } else {
+                completed.increment();
+            }
+            next(base, seed, latency, completed, errors, running);
+        });
+    }
+
+    private CompletableFuture<JsonNode> send(HttpRequest request) {
+        return http.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray()).thenApply(response -> {
+            if (response.statusCode() >= 300) {
+                throw new IllegalStateException(request.method() + " " + request.uri() + " returned "
+                        + response.statusCode() + ": " + new String(response.body()));
+            }
+            try {
+                return MAPPER.readTree(response.body());
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    private static HttpRequest request(String method, String uri, String token, Object body) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(uri));
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        if (body == null) {
+            return builder.method(method, HttpRequest.BodyPublishers.noBody()).build();
+        }
+        try {
+            return builder.header("Content-Type", "application/json")
+                    .method(method, HttpRequest.BodyPublishers.ofByteArray(MAPPER.writeValueAsBytes(body)))
+                    .build();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static HttpRequest conditional(HttpRequest request, String etag) {
+        return HttpRequest.newBuilder(request, (name, value) -> true).header("If-None-Match", etag).build();
+    }
+
+    // "endpoint: a.b[].c" for every field of the response, so both stacks can be compared
+    private static Set<String> fieldPaths(String endpoint, JsonNode node) {
+        Set<String> paths = new TreeSet<>();
+        collect(endpoint + ": ", node, paths);
+        return paths;
+    }
+
+    private static void collect(String path, JsonNode node, Set<String> paths) {
+        if (node.isObject()) {
+            node.fields().forEachRemaining(field -> {
+                String child = path + (path.endsWith(" ") ? "" : ".") + field.getKey();
+                paths.add(child);
+                collect(child, field.getValue(), paths);
+            });
+        } else if (node.isArray()) {
+            for (JsonNode element : node) {
+                collect(path + "[]", element, paths);
+            }
+        }
+    }
+
+    private static void printContractDiff(Set<String> servlet, Set<String> reactive) {
+        Set<String> onlyServlet = new TreeSet<>(servlet);
+        onlyServlet.removeAll(reactive);
+        Set<String> onlyReactive = new TreeSet<>(reactive);
+        onlyReactive.removeAll(servlet);
+        if (onlyServlet.isEmpty() && onlyReactive.isEmpty()) {
+            System.out.println("JSON contract: both stacks returned the same statuses and "
+                    + servlet.size() + " response fields");
+            return;
+        }
+        System.out.println("JSON contract differs");
+        onlyServlet.forEach(path -> System.out.println("  servlet only:  " + path));
+        onlyReactive.forEach(path -> System.out.println("  reactive only: " + path));
+    }
+
+    private static final class Seed {
+        final List<String> tokens = new ArrayList<>();
+        final List<String> meetupIds = new ArrayList<>();
+        final List<Integer> owners = new ArrayList<>();
+        final List<String> inviteCodes = new ArrayList<>();
+    }
+
+    private static final class Result {
+        final String stack;
+        final double throughput;
+        final Histogram histogram;
+        final long errors;
+        final Set<String> contract = new TreeSet<>();
+
+        Result(String stack, double throughput, Histogram histogram, long errors) {
+            this.stack = stack;
+            this.throughput = throughput;
+            this.histogram = histogram;
+            this.errors = errors;
+        }
+
+        void print() {
+            System.out.printf("%-9s %10.0f %9.2f %9.2f %9.2f %9.2f %8d%n", stack, throughput,
+                    histogram.getValueAtPercentile(50) / 1000.0, histogram.getValueAtPercentile(99) / 1000.0,
+                    histogram.getValueAtPercentile(99.9) / 1000.0, histogram.getMaxValue() / 1000.0, errors);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.trulo.trulomeetuptracker.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.security.Key;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token issue and verification. {@code verify} is the cached path used by JwtFilter and the
+ * socket handshake; {@code parse} is the full signature check it falls back to.
+ * {@code legacyFilter} is what JwtFilter did per request before: extractUserId and then
+ * validateToken, each building a new parser and checking the signature again.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtUtilBenchmark {
+
+    private JwtUtil jwtUtil;
+    private Key key;
+    private String token;
+
+    @Setup
+    public void setup() {
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret",
+                "benchmark_secret_that_is_long_enough_for_the_hs256_algorithm");
+        ReflectionTestUtils.setField(jwtUtil, "expirationTime", 86_400_000L);
+        ReflectionTestUtils.setField(jwtUtil, "cacheMaxSize", 10_000L);
+        ReflectionTestUtils.setField(jwtUtil, "meterRegistry", new SimpleMeterRegistry());
+        jwtUtil.init();
+        key = (Key) ReflectionTestUtils.getField(jwtUtil, "key");
+        token = jwtUtil.generateToken("5f1d7c3e9b1e8a2d4c6f0a1b");
+    }
+
+    @Benchmark
+    public String generate() {
+        return jwtUtil.generateToken("5f1d7c3e9b1e8a2d4c6f0a1b");
+    }
+
+    @Benchmark
+    public Object verify() {
+        return jwtUtil.verify(token);
+    }
+
+    @Benchmark
+    public String parse() {
+        return jwtUtil.extractUserId(token);
+    }
+
+    @Benchmark
+    public String legacyFilter() {
+        String userId = legacyClaims(token).get("userId", String.class);
+        boolean valid = !legacyClaims(token).getExpiration().before(new Date());
+        return valid ? userId : null;
+    }
+
+    // The removed JwtUtil.extractAllClaims
+    private Claims legacyClaims(String token) {
+        return Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token).getBody();
+    }
+}
@@ -0,0 +1,205 @@
+package com.trulo.trulomeetuptracker.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trulo.trulomeetuptracker.dto.MeetupView;
+import com.trulo.trulomeetuptracker.model.Meetup;
+import com.trulo.trulomeetuptracker.model.User;
+import com.trulo.trulomeetuptracker.repository.UserRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meetup response building (MeetupController.populateMeetup / the listing) against an
+ * in-memory stand-in for UserRepository, with and without JSON serialization. The
+ * {@code legacy*} benchmarks build the nested HashMap responses MeetupHydrator used to return,
+ * as a baseline for {@code -prof gc}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MeetupHydratorBenchmark {
+
+    @Param({"1", "50"})
+    private int meetups;
+
+    @Param({"5", "50"})
+    private int participants;
+
+    private MeetupHydrator hydrator;
+    private LegacyHydrator legacyHydrator;
+    private ObjectMapper mapper;
+    private List<Meetup> page;
+
+    @Setup
+    public void setup() {
+        Map<String, User> users = new HashMap<>();
+        for (int i = 0; i < participants; i++) {
+            String id = "user" + i;
+            users.put(id, User.builder().id(id).username("user" + i).displayName("User " + i)
+                    .avatar("https://example.com/" + i + ".png").build());
+        }
+
+        hydrator = new MeetupHydrator();
+        UserRepository userRepository = standInRepository(users);
+        ReflectionTestUtils.setField(hydrator, "userRepository", userRepository);
+        legacyHydrator = new LegacyHydrator(userRepository);
+        // Same defaults as the application's ObjectMapper
+        mapper = Jackson2ObjectMapperBuilder.json().build();
+
+        page = new ArrayList<>();
+        for (int m = 0; m < meetups; m++) {
+            Meetup meetup = Meetup.builder()
+                    .id("meetup" + m)
+                    .title("Meetup " + m)
+                    .description("Benchmark meetup")
+                    .creator("user0")
+                    .location(new Meetup.Location("Cafe", "1 Main St", new Meetup.Coordinates(52.52, 13.405)))
+                    .scheduledTime(new Date())
+                    .inviteCode("ABC" + m)
+                    .build();
+            for (int p = 0; p < participants; p++) {
+                meetup.getParticipants().add(new Meetup.Participant("user" + p, "accepted", new Date()));
+            }
+            page.add(meetup);
+        }
+    }
+
+    @Benchmark
+    public List<MeetupView> hydrate() {
+        return hydrator.hydrate(page);
+    }
+
+    @Benchmark
+    public byte[] hydrateAndSerialize() throws Exception {
+        return mapper.writeValueAsBytes(Map.of("meetups", hydrator.hydrate(page)));
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> legacyHydrate() {
+        return legacyHydrator.hydrate(page);
+    }
+
+    @Benchmark
+    public byte[] legacyHydrateAndSerialize() throws Exception {
+        return mapper.writeValueAsBytes(Map.of("meetups", legacyHydrator.hydrate(page)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static UserRepository standInRepository(Map<String, User> users) {
+        return (UserRepository) Proxy.newProxyInstance(UserRepository.class.getClassLoader(),
+                new Class<?>[] {UserRepository.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "findSummariesByIdIn":
+                            List<User> found = new ArrayList<>();
+                            for (String id : (Collection<String>) args[0]) {
+                                User user = users.get(id);
+                                if (user != null) {
+                                    found.add(user);
+                                }
+                            }
+                            return found;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        case "toString":
+                            return "StandInUserRepository";
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    /** MeetupHydrator before the typed views: one HashMap per meetup, participant and user summary. */
+    private static final class LegacyHydrator {
+
+        private final UserRepository userRepository;
+
+        LegacyHydrator(UserRepository userRepository) {
+            this.userRepository = userRepository;
+        }
+
+        List<Map<String, Object>> hydrate(List<Meetup> meetups) {
+            Map<String, User> users = loadUsers(meetups);
+
+            List<Map<String, Object>> populated = new ArrayList<>(meetups.size());
+            for (Meetup meetup : meetups) {
+                populated.add(populate(meetup, users));
+            }
+            return populated;
+        }
+
+        private Map<String, User> loadUsers(List<Meetup> meetups) {
+            Set<String> userIds = new HashSet<>();
+            for (Meetup meetup : meetups) {
+                if (meetup.getCreator() != null) {
+                    userIds.add(meetup.getCreator());
+                }
+                for (Meetup.Participant p : meetup.getParticipants()) {
+                    if (p.getUser() != null) {
+                        userIds.add(p.getUser());
+                    }
+                }
+            }
+
+            if (userIds.isEmpty()) {
+                return Collections.emptyMap();
+            }
+
+            Map<String, User> users = new HashMap<>();
+            for (User user : userRepository.findSummariesByIdIn(userIds)) {
+                users.put(user.getId(), user);
+            }
+            return users;
+        }
+
+        private Map<String, Object> populate(Meetup meetup, Map<String, User> users) {
+            Map<String, Object> populated = new HashMap<>();
+            populated.put("_id", meetup.getId());
+            populated.put("title", meetup.getTitle());
+            populated.put("description", meetup.getDescription());
+            populated.put("location", meetup.getLocation());
+            populated.put("scheduledTime", meetup.getScheduledTime());
+            populated.put("duration", meetup.getDuration());
+            populated.put("status", meetup.getStatus());
+            populated.put("isPrivate", meetup.isPrivate());
+            populated.put("inviteCode", meetup.getInviteCode());
+            populated.put("settings", meetup.getSettings());
+            populated.put("createdAt", meetup.getCreatedAt());
+
+            User creator = meetup.getCreator() != null ? users.get(meetup.getCreator()) : null;
+            populated.put("creator", creator != null ? summarize(creator) : meetup.getCreator());
+
+            List<Map<String, Object>> parts = new ArrayList<>();
+            for (Meetup.Participant p : meetup.getParticipants()) {
+                Map<String, Object> pMap = new HashMap<>();
+                pMap.put("status", p.getStatus());
+                pMap.put("joinedAt", p.getJoinedAt());
+
+                User u = p.getUser() != null ? users.get(p.getUser()) : null;
+                pMap.put("user", u != null ? summarize(u) : p.getUser());
+                parts.add(pMap);
+            }
+            populated.put("participants", parts);
+
+            return populated;
+        }
+
+        private static Map<String, String> summarize(User user) {
+            Map<String, String> uMap = new HashMap<>();
+            uMap.put("_id", user.getId());
+            uMap.put("username", user.getUsername());
+            uMap.put("displayName", user.getDisplayName());
+            uMap.put("avatar", user.getAvatar());
+            return uMap;
+        }
+    }
+}
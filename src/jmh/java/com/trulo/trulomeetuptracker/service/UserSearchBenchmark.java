@@ -0,0 +1,74 @@
+package com.trulo.trulomeetuptracker.service;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * /api/auth/users/search over synthetic users: the n-gram index against the full scan with
+ * {@code toLowerCase().contains} that it replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserSearchBenchmark {
+
+    private static final String[] NAMES = {"alex", "sam", "jordan", "taylor", "morgan", "casey", "riley", "jamie",
+            "avery", "quinn", "rowan", "sage", "kai", "noor", "ari", "lee"};
+
+    @Param({"1000", "100000"})
+    private int users;
+
+    @Param({"ja", "mor", "noor123"})
+    private String query;
+
+    private UserNgramIndex index;
+    private String[][] rows;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        // Uncapped, to measure ranking every candidate rather than the text index fallback
+        index = new UserNgramIndex(Integer.MAX_VALUE);
+        rows = new String[users][];
+        for (int i = 0; i < users; i++) {
+            String first = NAMES[random.nextInt(NAMES.length)];
+            String last = NAMES[random.nextInt(NAMES.length)];
+            String username = first + i;
+            String displayName = Character.toUpperCase(first.charAt(0)) + first.substring(1) + " "
+                    + Character.toUpperCase(last.charAt(0)) + last.substring(1);
+            String email = first + "." + last + i + "@example.com";
+            rows[i] = new String[] {"id" + i, username, displayName, email};
+            index.put(rows[i][0], username, displayName, email);
+        }
+    }
+
+    @Benchmark
+    public List<String> index() {
+        return index.search(query, "id0", 10);
+    }
+
+    // Unranked, and stops at the first 10 hits, so common queries favour it
+    @Benchmark
+    public List<String> scan() {
+        String q = query.toLowerCase();
+        List<String> result = new ArrayList<>();
+        for (String[] row : rows) {
+            if (row[0].equals("id0")) {
+                continue;
+            }
+            if (row[1].toLowerCase().contains(q) || row[2].toLowerCase().contains(q)
+                    || row[3].toLowerCase().contains(q)) {
+                result.add(row[0]);
+                if (result.size() == 10) {
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+}
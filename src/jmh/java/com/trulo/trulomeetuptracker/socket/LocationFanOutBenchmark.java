@@ -0,0 +1,104 @@
+package com.trulo.trulomeetuptracker.socket;
+
+import com.corundumstudio.socketio.Configuration;
+import com.corundumstudio.socketio.SocketIOServer;
+import com.corundumstudio.socketio.protocol.*;
+import com.trulo.trulomeetuptracker.socket.cluster.LocalClusterBus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one {@code locations_updated} tick for a room: the per-recipient packet encoding
+ * netty-socketio does for each member, with the batch serialized for every recipient versus
+ * once through {@link RoomBroadcaster#encode}, and the compact binary frame.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LocationFanOutBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int roomSize;
+
+    private final ByteBufAllocator allocator = UnpooledByteBufAllocator.DEFAULT;
+    private PacketEncoder encoder;
+    private RoomBroadcaster roomBroadcaster;
+    private CompactLocationCodec codec;
+    private List<LocationFix> fixes;
+    private Map<String, Object> batch;
+
+    @Setup
+    public void setup() {
+        Configuration configuration = new Configuration();
+        encoder = new PacketEncoder(configuration, new JacksonJsonSupport());
+        roomBroadcaster = new RoomBroadcaster(new SocketIOServer(configuration), new LocalClusterBus(),
+                new SimpleMeterRegistry());
+        codec = new CompactLocationCodec();
+
+        Random random = new Random(42);
+        long now = System.currentTimeMillis();
+        fixes = new ArrayList<>(roomSize);
+        List<Map<String, Object>> locations = new ArrayList<>(roomSize);
+        for (int i = 0; i < roomSize; i++) {
+            LocationFix fix = new LocationFix("user" + i, 52.52 + random.nextDouble() / 100,
+                    13.405 + random.nextDouble() / 100, now + i);
+            fixes.add(fix);
+            codec.addMember(fix.userId);
+
+            Map<String, Object> location = new HashMap<>();
+            location.put("userId", fix.userId);
+            location.put("latitude", fix.latitude);
+            location.put("longitude", fix.longitude);
+            location.put("timestamp", new Date(fix.timestamp));
+            locations.add(location);
+        }
+        batch = new HashMap<>();
+        batch.put("meetupId", "meetup0");
+        batch.put("locations", locations);
+    }
+
+    @Benchmark
+    public long encodePerRecipient() throws IOException {
+        return sendToRoom(batch);
+    }
+
+    @Benchmark
+    public long encodeOnce() throws IOException {
+        return sendToRoom(roomBroadcaster.encode(batch));
+    }
+
+    @Benchmark
+    public byte[] compactFrame() {
+        return codec.encode(fixes);
+    }
+
+    // What BroadcastOperations.sendEvent ends up doing: one packet encode per member
+    private long sendToRoom(Object payload) throws IOException {
+        long bytes = 0;
+        for (int i = 0; i < roomSize; i++) {
+            Packet packet = new Packet(PacketType.MESSAGE);
+            packet.setSubType(PacketType.EVENT);
+            packet.setName("locations_updated");
+            packet.setData(Collections.singletonList(payload));
+
+            ByteBuf out = allocator.heapBuffer();
+            try {
+                encoder.encodePacket(packet, out, allocator, false);
+                bytes += out.readableBytes();
+            } finally {
+                out.release();
+            }
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,196 @@
+package com.trulo.trulomeetuptracker.socket;
+
+import com.corundumstudio.socketio.Configuration;
+import com.corundumstudio.socketio.SocketIOClient;
+import com.corundumstudio.socketio.SocketIOServer;
+import com.trulo.trulomeetuptracker.socket.cluster.LocalClusterBus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.HttpClientCodec;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketClientHandshakerFactory;
+import io.netty.handler.codec.http.websocketx.WebSocketClientProtocolHandler;
+import io.netty.handler.codec.http.websocketx.WebSocketVersion;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.logging.LogLevel;
+import org.springframework.boot.logging.LoggingSystem;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One event to everyone else in a room of connected sockets, until the last member has it:
+ * the per-client loop SocketHandler used to run, where every member's packet serializes the
+ * payload again, versus {@link RoomBroadcaster#broadcastExcept}, which serializes it once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoomBroadcastBenchmark {
+
+    private static final String HOST = "127.0.0.1";
+    private static final String ROOM = "meetup_meetup0";
+    private static final String EVENT = "location_updated";
+
+    @Param({"10", "100", "1000"})
+    private int roomSize;
+
+    private SocketIOServer server;
+    private RoomBroadcaster roomBroadcaster;
+    private NioEventLoopGroup group;
+    private SocketIOClient sender;
+    private Map<String, Object> location;
+    private volatile CountDownLatch delivered;
+
+    @Setup
+    public void setup() throws Exception {
+        LoggingSystem logging = LoggingSystem.get(RoomBroadcastBenchmark.class.getClassLoader());
+        logging.beforeInitialize();
+        logging.setLogLevel(LoggingSystem.ROOT_LOGGER_NAME, LogLevel.WARN);
+
+        Configuration configuration = new Configuration();
+        configuration.setHostname(HOST);
+        configuration.setPort(freePort());
+        server = new SocketIOServer(configuration);
+        server.addConnectListener(client -> client.joinRoom(ROOM));
+        server.start();
+        roomBroadcaster = new RoomBroadcaster(server, new LocalClusterBus(), new SimpleMeterRegistry());
+
+        group = new NioEventLoopGroup(2);
+        List<CompletableFuture<Void>> connected = new ArrayList<>(roomSize);
+        for (int i = 0; i < roomSize; i++) {
+            connected.add(new Member().connect(configuration.getPort()));
+        }
+        CompletableFuture.allOf(connected.toArray(new CompletableFuture[0])).get(60, TimeUnit.SECONDS);
+        // Room joins happen on the server's threads, after the client saw the connect
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (server.getRoomOperations(ROOM).getClients().size() < roomSize) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new IllegalStateException("Members did not join " + ROOM);
+            }
+            Thread.sleep(10);
+        }
+        sender = server.getRoomOperations(ROOM).getClients().iterator().next();
+
+        // The payload SocketHandler built for every location_update
+        location = new HashMap<>();
+        location.put("userId", "user0");
+        location.put("latitude", 52.52);
+        location.put("longitude", 13.405);
+        location.put("timestamp", new Date());
+    }
+
+    @TearDown
+    public void tearDown() {
+        group.shutdownGracefully(0, 1, TimeUnit.SECONDS).syncUninterruptibly();
+        server.stop();
+    }
+
+    @Benchmark
+    public void perClientLoop() throws InterruptedException {
+        CountDownLatch latch = expect();
+        server.getRoomOperations(ROOM)
+                .getClients()
+                .forEach(c -> {
+                    if (!c.getSessionId().equals(sender.getSessionId())) {
+                        c.sendEvent(EVENT, location);
+                    }
+                });
+        await(latch);
+    }
+
+    @Benchmark
+    public void broadcastExcept() throws InterruptedException {
+        CountDownLatch latch = expect();
+        roomBroadcaster.broadcastExcept(ROOM, EVENT, location, sender);
+        await(latch);
+    }
+
+    private CountDownLatch expect() {
+        CountDownLatch latch = new CountDownLatch(roomSize - 1);
+        delivered = latch;
+        return latch;
+    }
+
+    private static void await(CountDownLatch latch) throws InterruptedException {
+        if (!latch.await(10, TimeUnit.SECONDS)) {
+            throw new IllegalStateException(latch.getCount() + " members did not receive the event");
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /** A room member: Engine.IO v4 over a websocket, counting the events it receives. */
+    private final class Member extends SimpleChannelInboundHandler<TextWebSocketFrame> {
+
+        private final CompletableFuture<Void> connected = new CompletableFuture<>();
+
+        CompletableFuture<Void> connect(int port) {
+            URI uri = URI.create("ws://" + HOST + ":" + port + "/socket.io/?EIO=4&transport=websocket");
+            Member handler = this;
+            new Bootstrap()
+                    .group(group)
+                    .channel(NioSocketChannel.class)
+                    .option(ChannelOption.TCP_NODELAY, true)
+                    .handler(new ChannelInitializer<SocketChannel>() {
+                        @Override
+                        protected void initChannel(SocketChannel ch) {
+                            ch.pipeline().addLast(
+                                    new HttpClientCodec(),
+                                    new HttpObjectAggregator(1 << 16),
+                                    new WebSocketClientProtocolHandler(WebSocketClientHandshakerFactory.newHandshaker(
+                                            uri, WebSocketVersion.V13, null, false, new DefaultHttpHeaders())),
+                                    handler);
+                        }
+                    })
+                    .connect(HOST, port)
+                    .addListener(future -> {
+                        if (!future.isSuccess()) {
+                            connected.completeExceptionally(future.cause());
+                        }
+                    });
+            return connected;
+        }
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, TextWebSocketFrame frame) {
+            String text = frame.text();
+            if (text.startsWith("42")) {
+                delivered.countDown();
+            } else if (text.startsWith("0")) {
+                ctx.writeAndFlush(new TextWebSocketFrame("40"));
+            } else if (text.equals("2")) {
+                ctx.writeAndFlush(new TextWebSocketFrame("3"));
+            } else if (text.startsWith("40")) {
+                connected.complete(null);
+            }
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            connected.completeExceptionally(cause);
+            ctx.close();
+        }
+    }
+}
@@ -0,0 +1,394 @@
+package com.trulo.trulomeetuptracker.socket;
+
+import com.corundumstudio.socketio.SocketIOServer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trulo.trulomeetuptracker.model.Meetup;
+import com.trulo.trulomeetuptracker.model.User;
+import com.trulo.trulomeetuptracker.repository.MeetupRepository;
+import com.trulo.trulomeetuptracker.repository.UserRepository;
+import com.trulo.trulomeetuptracker.security.JwtUtil;
+import com.trulo.trulomeetuptracker.security.PrincipalCache;
+import com.trulo.trulomeetuptracker.socket.cluster.ClusterConfig;
+import com.trulo.trulomeetuptracker.tracking.ActiveMeetupCache;
+import com.trulo.trulomeetuptracker.tracking.GeofenceEngine;
+import com.trulo.trulomeetuptracker.tracking.LocationHistoryWriter;
+import com.trulo.trulomeetuptracker.tracking.MeetupSpatialIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.*;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.HttpClientCodec;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.websocketx.*;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.mockito.Mockito;
+import org.springframework.boot.logging.LogLevel;
+import org.springframework.boot.logging.LoggingSystem;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.support.PropertySourcesPlaceholderConfigurer;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.io.PrintStream;
+import java.net.URI;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * End-to-end load test for the socket fan-out path.
+ *
+ * Starts the real SocketIOServer from {@link SocketIOConfig}, with SocketHandler and the
+ * tracking components, against in-memory users and meetups. Simulated clients connect with
+ * signed tokens over plain Engine.IO v4 websockets (one shared Netty event loop, so the
+ * clients scale to thousands of connections), join meetups in rooms of
+ * {@code load.room-size} and stream {@code location_update} at {@code load.rate} per client.
+ *
+ * Every fix carries a sequence slot in its latitude. Receivers map it back to the send time,
+ * so the recorded latency is publish-to-receive and includes the location tick. Fixes the
+ * tick coalesces away are sent but never delivered. History writes are disabled.
+ *
+ * Run with {@code mvn -P benchmarks test-compile exec:exec@socket-load}; see the pom for the
+ * {@code load.*} settings.
+ */
+public class SocketLoadTest {
+
+    private static final String HOST = "127.0.0.1";
+
+    // Latitude = BASE_LATITUDE + slot micro-degrees; exact in a double and in the JSON frames
+    private static final double BASE_LATITUDE = 10.0;
+    private static final double SLOT_DEGREES = 1e-6;
+    private static final int SLOTS = 1 << 22;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final int clients = Integer.getInteger("load.clients", 1000);
+    private final int roomSize = Integer.getInteger("load.room-size", 50);
+    private final double rate = Double.parseDouble(System.getProperty("load.rate", "1"));
+    private final long tickMs = Long.getLong("load.tick-ms", 500);
+    private final long warmupSeconds = Long.getLong("load.warmup-s", 10);
+    private final long durationSeconds = Long.getLong("load.duration-s", 30);
+    private final int connectConcurrency = Integer.getInteger("load.connect-concurrency", 100);
+    private final int port = Integer.getInteger("load.port", 5101);
+    private final String report = System.getProperty("load.report", "socket-load.hgrm");
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLongArray sentAt = new AtomicLongArray(SLOTS);
+    private final Recorder latency = new Recorder(3);
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder frames = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    public static void main(String[] args) throws Exception {
+        LoggingSystem logging = LoggingSystem.get(SocketLoadTest.class.getClassLoader());
+        logging.beforeInitialize();
+        logging.setLogLevel(LoggingSystem.ROOT_LOGGER_NAME, LogLevel.WARN);
+        new SocketLoadTest().run();
+    }
+
+    private void run() throws Exception {
+        AnnotationConfigApplicationContext context = startServer();
+        SocketIOServer server = context.getBean(SocketIOServer.class);
+        JwtUtil jwtUtil = context.getBean(JwtUtil.class);
+        InMemoryStore store = context.getBean(InMemoryStore.class);
+
+        List<LoadClient> loadClients = new ArrayList<>(clients);
+        for (int i = 0; i < clients; i++) {
+            String userId = "load-user-" + i;
+            String meetupId = "load-meetup-" + (i / roomSize);
+            store.users.put(userId, User.builder().id(userId).username(userId).email(userId + "@example.com").build());
+            store.meetups.computeIfAbsent(meetupId, id -> Meetup.builder()
+                    .id(id)
+                    .title(id)
+                    .creator(userId)
+                    .location(new Meetup.Location("Load test", null,
+                            new Meetup.Coordinates(BASE_LATITUDE, 13.4)))
+                    .build());
+            double longitude = 13.4 + (i % roomSize) * 0.001;
+            loadClients.add(new LoadClient(userId, meetupId, jwtUtil.generateToken(userId), longitude));
+        }
+
+        NioEventLoopGroup group = new NioEventLoopGroup();
+        ScheduledExecutorService senders = Executors.newScheduledThreadPool(
+                Math.max(2, Runtime.getRuntime().availableProcessors() / 2));
+        try {
+            double connectSeconds = connectAll(group, loadClients);
+            long connected = loadClients.stream().filter(LoadClient::isConnected).count();
+
+            long periodMicros = (long) (1_000_000 / rate);
+            Random random = new Random();
+            for (LoadClient client : loadClients) {
+                if (client.isConnected()) {
+                    senders.scheduleAtFixedRate(client::sendFix, (long) (random.nextDouble() * periodMicros),
+                            periodMicros, TimeUnit.MICROSECONDS);
+                }
+            }
+
+            Thread.sleep(TimeUnit.SECONDS.toMillis(warmupSeconds));
+            latency.getIntervalHistogram(); // discard the warmup
+            sent.reset();
+            delivered.reset();
+            frames.reset();
+            long start = System.nanoTime();
+
+            Thread.sleep(TimeUnit.SECONDS.toMillis(durationSeconds));
+            Histogram histogram = latency.getIntervalHistogram();
+            double seconds = (System.nanoTime() - start) / 1e9;
+            senders.shutdownNow();
+
+            printReport(connected, connectSeconds, seconds, histogram);
+            try (PrintStream out = new PrintStream(report)) {
+                histogram.outputPercentileDistribution(out, 1000.0);
+            }
+        } finally {
+            senders.shutdownNow();
+            for (LoadClient client : loadClients) {
+                client.close();
+            }
+            group.shutdownGracefully().syncUninterruptibly();
+            server.stop();
+            context.close();
+        }
+    }
+
+    private AnnotationConfigApplicationContext startServer() {
+        Map<String, Object> properties = new HashMap<>();
+        // SocketIOConfig listens on server.port + 1
+        properties.put("server.port", port - 1);
+        properties.put("jwt.secret", "load_test_secret_that_is_long_enough_for_the_hs256_algorithm");
+        properties.put("jwt.expiration", 86_400_000L);
+        properties.put("socket.location.tick-ms", tickMs);
+        properties.put("socket.cluster.mode", "local");
+        properties.put("tracking.history.enabled", false);
+
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("load", properties));
+        context.register(PropertySourcesPlaceholderConfigurer.class, SimpleMeterRegistry.class, InMemoryStore.class,
+                ClusterConfig.class, SocketIOConfig.class, JwtUtil.class, PrincipalCache.class, PendingUserChecks.class, SessionRegistry.class,
+                IdleSessionSweeper.class, RoomBroadcaster.class, LocationBroadcaster.class, SocketHandler.class,
+                ActiveMeetupCache.class, MeetupSpatialIndex.class, GeofenceEngine.class, LocationHistoryWriter.class);
+        context.refresh();
+        context.getBean(SocketIOServer.class).start();
+        return context;
+    }
+
+    /** @return seconds taken until every client connected or failed */
+    private double connectAll(EventLoopGroup group, List<LoadClient> loadClients) throws InterruptedException {
+        Bootstrap bootstrap = new Bootstrap()
+                .group(group)
+                .channel(NioSocketChannel.class)
+                .option(ChannelOption.TCP_NODELAY, true);
+        Semaphore inFlight = new Semaphore(connectConcurrency);
+        CountDownLatch done = new CountDownLatch(loadClients.size());
+
+        long start = System.nanoTime();
+        for (LoadClient client : loadClients) {
+            inFlight.acquire();
+            client.connect(bootstrap).whenComplete((ok, e) -> {
+                if (e != null) {
+                    errors.increment();
+                }
+                inFlight.release();
+                done.countDown();
+            });
+        }
+        if (!done.await(5, TimeUnit.MINUTES)) {
+            System.out.println("Gave up waiting for " + done.getCount() + " connections");
+        }
+        return (System.nanoTime() - start) / 1e9;
+    }
+
+    private void printReport(long connected, double connectSeconds, double seconds, Histogram histogram) {
+        long sentCount = sent.sum();
+        long deliveredCount = delivered.sum();
+        System.out.println();
+        System.out.println("Socket load test: " + clients + " clients in rooms of " + roomSize + ", "
+                + rate + " location_update/s per client, location tick " + tickMs + " ms");
+        System.out.printf("Connections: %d of %d in %.2f s (%.0f/s), %d errors%n",
+                connected, clients, connectSeconds, connected / connectSeconds, errors.sum());
+        System.out.printf("Sent:        %d location_update in %.1f s (%.0f msgs/s)%n",
+                sentCount, seconds, sentCount / seconds);
+        System.out.printf("Received:    %d fixes in %d frames (%.0f fixes/s, %.0f frames/s)%n",
+                deliveredCount, frames.sum(), deliveredCount / seconds, frames.sum() / seconds);
+        System.out.printf("Latency ms:  p50 %.2f  p99 %.2f  p999 %.2f  max %.2f (%d samples)%n",
+                histogram.getValueAtPercentile(50) / 1000.0, histogram.getValueAtPercentile(99) / 1000.0,
+                histogram.getValueAtPercentile(99.9) / 1000.0, histogram.getMaxValue() / 1000.0,
+                histogram.getTotalCount());
+        System.out.println("Latency distribution written to " + report);
+    }
+
+    private void received(String userId, JsonNode fix) {
+        if (userId.equals(fix.path("userId").asText())) {
+            return; // batches include the client's own fix
+        }
+        long slot = Math.round((fix.path("latitude").asDouble() - BASE_LATITUDE) / SLOT_DEGREES);
+        if (slot < 0 || slot >= SLOTS) {
+            return;
+        }
+        long micros = (System.nanoTime() - sentAt.get((int) slot)) / 1000;
+        latency.recordValue(Math.max(0, micros));
+        delivered.increment();
+    }
+
+    /** One simulated Socket.IO client speaking Engine.IO v4 over a websocket. */
+    private final class LoadClient extends SimpleChannelInboundHandler<TextWebSocketFrame> {
+
+        private final String userId;
+        private final String meetupId;
+        private final String token;
+        private final double longitude;
+        private final CompletableFuture<Void> connected = new CompletableFuture<>();
+        private volatile Channel channel;
+
+        LoadClient(String userId, String meetupId, String token, double longitude) {
+            this.userId = userId;
+            this.meetupId = meetupId;
+            this.token = token;
+            this.longitude = longitude;
+        }
+
+        CompletableFuture<Void> connect(Bootstrap bootstrap) {
+            URI uri = URI.create("ws://" + HOST + ":" + port + "/socket.io/?EIO=4&transport=websocket&token=" + token);
+            WebSocketClientHandshaker handshaker = WebSocketClientHandshakerFactory.newHandshaker(
+                    uri, WebSocketVersion.V13, null, false, new DefaultHttpHeaders(), 1 << 20);
+            LoadClient handler = this;
+            bootstrap.clone()
+                    .handler(new ChannelInitializer<SocketChannel>() {
+                        @Override
+                        protected void initChannel(SocketChannel ch) {
+                            ch.pipeline().addLast(
+                                    new HttpClientCodec(),
+                                    new HttpObjectAggregator(1 << 16),
+                                    new WebSocketClientProtocolHandler(handshaker),
+                                    new WebSocketFrameAggregator(1 << 20),
+                                    handler);
+                        }
+                    })
+                    .connect(HOST, port)
+                    .addListener((ChannelFutureListener) future -> {
+                        if (!future.isSuccess()) {
+                            connected.completeExceptionally(future.cause());
+                        }
+                    });
+            return connected;
+        }
+
+        boolean isConnected() {
+            return connected.isDone() && !connected.isCompletedExceptionally();
+        }
+
+        void sendFix() {
+            Channel ch = channel;
+            if (ch == null || !ch.isActive()) {
+                return;
+            }
+            long seq = sequence.getAndIncrement();
+            int slot = (int) (seq & (SLOTS - 1));
+            double latitude = BASE_LATITUDE + slot * SLOT_DEGREES;
+            sentAt.set(slot, System.nanoTime());
+            ch.writeAndFlush(new TextWebSocketFrame("42[\"location_update\",{\"meetupId\":\"" + meetupId
+                    + "\",\"latitude\":" + latitude + ",\"longitude\":" + longitude + "}]"));
+            sent.increment();
+        }
+
+        void close() {
+            Channel ch = channel;
+            if (ch != null) {
+                ch.close();
+            }
+        }
+
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) throws Exception {
+            channel = ctx.channel();
+            super.channelActive(ctx);
+        }
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, TextWebSocketFrame frame) throws Exception {
+            String text = frame.text();
+            if (text.startsWith("0")) {
+                // Engine.IO open; connect to the default namespace
+                ctx.writeAndFlush(new TextWebSocketFrame("40"));
+            } else if (text.equals("2")) {
+                ctx.writeAndFlush(new TextWebSocketFrame("3"));
+            } else if (text.startsWith("40")) {
+                ctx.writeAndFlush(new TextWebSocketFrame("42[\"join_meetup\",\"" + meetupId + "\"]"));
+                connected.complete(null);
+            } else if (text.startsWith("44")) {
+                connected.completeExceptionally(new IllegalStateException("Connect refused: " + text));
+                ctx.close();
+            } else if (text.startsWith("42")) {
+                onEvent(MAPPER.readTree(text.substring(2)));
+            }
+        }
+
+        private void onEvent(JsonNode event) {
+            String name = event.path(0).asText();
+            if ("locations_updated".equals(name)) {
+                frames.increment();
+                for (JsonNode fix : event.path(1).path("locations")) {
+                    received(userId, fix);
+                }
+            } else if ("location_updated".equals(name)) {
+                // Sent per fix when the location tick is disabled
+                frames.increment();
+                received(userId, event.path(1));
+            }
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+            connected.completeExceptionally(new IllegalStateException("Closed before connecting"));
+            super.channelInactive(ctx);
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            errors.increment();
+            connected.completeExceptionally(cause);
+            ctx.close();
+        }
+    }
+
+    /**
+     * Users and meetups for the socket path, served from maps instead of MongoDB. Registered
+     * explicitly rather than as a @Configuration, so HttpLoadTest's component scan skips it.
+     */
+    static class InMemoryStore {
+
+        final Map<String, User> users = new ConcurrentHashMap<>();
+        final Map<String, Meetup> meetups = new ConcurrentHashMap<>();
+
+        @Bean
+        public UserRepository userRepository() {
+            UserRepository repository = Mockito.mock(UserRepository.class, Mockito.withSettings().stubOnly());
+            Mockito.when(repository.findPrincipalById(Mockito.anyString()))
+                    .thenAnswer(call -> Optional.ofNullable(users.get(call.<String>getArgument(0))));
+            return repository;
+        }
+
+        @Bean
+        public MeetupRepository meetupRepository() {
+            MeetupRepository repository = Mockito.mock(MeetupRepository.class, Mockito.withSettings().stubOnly());
+            Mockito.when(repository.findTrackingSnapshotById(Mockito.anyString()))
+                    .thenAnswer(call -> Optional.ofNullable(meetups.get(call.<String>getArgument(0))));
+            return repository;
+        }
+
+        // Only injected; history writes are disabled
+        @Bean
+        public MongoTemplate mongoTemplate() {
+            return Mockito.mock(MongoTemplate.class, Mockito.withSettings().stubOnly());
+        }
+    }
+}
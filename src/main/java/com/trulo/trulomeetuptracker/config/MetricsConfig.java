@@ -0,0 +1,105 @@
+package com.trulo.trulomeetuptracker.config;
+
+import com.trulo.trulomeetuptracker.service.MeetupLifecycleScheduler;
+import com.trulo.trulomeetuptracker.socket.IdleSessionSweeper;
+import com.trulo.trulomeetuptracker.socket.PendingUserChecks;
+import com.trulo.trulomeetuptracker.socket.SessionRegistry;
+import com.trulo.trulomeetuptracker.tracking.LocationHistoryWriter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Gauges and counters that read component state when scraped, so nothing extra runs on the
+ * socket threads. Timers on the hot paths are registered next to the code they time
+ * (trulo.socket.*, trulo.jwt.verify); repository timers come from Spring Boot.
+ */
+@Configuration
+public class MetricsConfig {
+
+    // trulo.socket.rooms.by.size buckets, in distinct users per room
+    private static final int[][] ROOM_SIZES = {{1, 1}, {2, 5}, {6, 20}, {21, 100}, {101, Integer.MAX_VALUE}};
+
+    @Bean
+    public MeterBinder socketMetrics(SessionRegistry sessions, IdleSessionSweeper idleSweeper,
+            PendingUserChecks userChecks) {
+        return registry -> {
+            Gauge.builder("trulo.socket.sessions", sessions, SessionRegistry::sessionCount)
+                    .description("Connected socket sessions on this node")
+                    .register(registry);
+            Gauge.builder("trulo.socket.rooms", sessions, SessionRegistry::roomCount)
+                    .description("Meetup rooms with at least one session on this node")
+                    .register(registry);
+            for (int[] bucket : ROOM_SIZES) {
+                String size = bucket[1] == Integer.MAX_VALUE ? bucket[0] + "+"
+                        : bucket[0] == bucket[1] ? String.valueOf(bucket[0])
+                        : bucket[0] + "-" + bucket[1];
+                Gauge.builder("trulo.socket.rooms.by.size", sessions, s -> s.countRooms(bucket[0], bucket[1]))
+                        .description("Meetup rooms on this node by number of distinct users")
+                        .tag("size", size)
+                        .register(registry);
+            }
+
+            Gauge.builder("trulo.socket.idle.tracked", idleSweeper, IdleSessionSweeper::getTracked)
+                    .register(registry);
+            FunctionCounter.builder("trulo.socket.idle.evicted", idleSweeper, IdleSessionSweeper::getEvicted)
+                    .register(registry);
+            FunctionCounter.builder("trulo.socket.idle.rescheduled", idleSweeper, IdleSessionSweeper::getRescheduled)
+                    .register(registry);
+            FunctionCounter.builder("trulo.socket.idle.failed", idleSweeper, IdleSessionSweeper::getFailed)
+                    .register(registry);
+
+            Gauge.builder("trulo.socket.user.checks.pending", userChecks, PendingUserChecks::getPending)
+                    .description("Sockets whose events are held until their user is confirmed")
+                    .register(registry);
+            FunctionCounter.builder("trulo.socket.user.checks", userChecks, PendingUserChecks::getConfirmed)
+                    .tag("result", "confirmed")
+                    .register(registry);
+            FunctionCounter.builder("trulo.socket.user.checks", userChecks, PendingUserChecks::getRejected)
+                    .tag("result", "rejected")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder locationHistoryMetrics(LocationHistoryWriter historyWriter) {
+        return registry -> {
+            Gauge.builder("trulo.history.queue", historyWriter, LocationHistoryWriter::getQueueSize)
+                    .description("Location fixes waiting for the history writer")
+                    .register(registry);
+            FunctionCounter.builder("trulo.history.points", historyWriter, LocationHistoryWriter::getEnqueued)
+                    .tag("state", "enqueued")
+                    .register(registry);
+            FunctionCounter.builder("trulo.history.points", historyWriter, LocationHistoryWriter::getDropped)
+                    .tag("state", "dropped")
+                    .register(registry);
+            FunctionCounter.builder("trulo.history.points", historyWriter, LocationHistoryWriter::getWritten)
+                    .tag("state", "written")
+                    .register(registry);
+            FunctionCounter.builder("trulo.history.points", historyWriter, LocationHistoryWriter::getFailed)
+                    .tag("state", "failed")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder lifecycleMetrics(MeetupLifecycleScheduler lifecycleScheduler) {
+        return registry -> {
+            Gauge.builder("trulo.lifecycle.pending", lifecycleScheduler, MeetupLifecycleScheduler::getPending)
+                    .description("Meetups with a start or end deadline waiting in the lifecycle scheduler")
+                    .register(registry);
+            FunctionCounter.builder("trulo.lifecycle.transitions", lifecycleScheduler, MeetupLifecycleScheduler::getStarted)
+                    .tag("status", "active")
+                    .register(registry);
+            FunctionCounter.builder("trulo.lifecycle.transitions", lifecycleScheduler, MeetupLifecycleScheduler::getCompleted)
+                    .tag("status", "completed")
+                    .register(registry);
+            FunctionCounter.builder("trulo.lifecycle.skipped", lifecycleScheduler, MeetupLifecycleScheduler::getSkipped)
+                    .register(registry);
+            FunctionCounter.builder("trulo.lifecycle.failed", lifecycleScheduler, MeetupLifecycleScheduler::getFailed)
+                    .register(registry);
+        };
+    }
+}
@@ -0,0 +1,19 @@
+package com.trulo.trulomeetuptracker.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.config.EnableMongoAuditing;
+import org.springframework.data.mongodb.config.EnableReactiveMongoAuditing;
+
+// Fills @CreatedDate/@LastModifiedDate on save()
+@Configuration
+@EnableMongoAuditing
+public class MongoConfig {
+
+    // Same for saves through the reactive repositories
+    @Configuration
+    @Profile("reactive")
+    @EnableReactiveMongoAuditing
+    static class ReactiveAuditing {
+    }
+}
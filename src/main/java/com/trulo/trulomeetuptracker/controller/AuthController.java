@@ -3,10 +3,16 @@ package com.trulo.trulomeetuptracker.controller;
 import com.trulo.trulomeetuptracker.dto.AuthResponse;
 import com.trulo.trulomeetuptracker.dto.LoginRequest;
 import com.trulo.trulomeetuptracker.dto.RegisterRequest;
+import com.trulo.trulomeetuptracker.dto.UpdateProfileRequest;
+import com.trulo.trulomeetuptracker.dto.UserView;
 import com.trulo.trulomeetuptracker.model.User;
 import com.trulo.trulomeetuptracker.repository.UserRepository;
+import com.trulo.trulomeetuptracker.security.AuthenticatedUser;
 import com.trulo.trulomeetuptracker.security.JwtUtil;
+import com.trulo.trulomeetuptracker.security.PrincipalCache;
+import com.trulo.trulomeetuptracker.service.UserSearchService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -19,6 +25,7 @@ import java.util.List;
 import java.util.Map;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("/api/auth")
 public class AuthController {
 
@@ -31,6 +38,12 @@ public class AuthController {
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Autowired
+    private PrincipalCache principalCache;
+
+    @Autowired
+    private UserSearchService userSearchService;
+
     @PostMapping("/register")
     public ResponseEntity<?> register(@RequestBody RegisterRequest request) {
         if (userRepository.existsByEmail(request.getEmail())
@@ -49,6 +62,7 @@ public class AuthController {
                 .build();
 
         userRepository.save(user);
+        userSearchService.index(user);
 
         String token = jwtUtil.generateToken(user.getId());
 
@@ -56,7 +70,7 @@ public class AuthController {
                 .body(AuthResponse.builder()
                         .message("User created successfully")
                         .token(token)
-                        .user(stripPassword(user))
+                        .user(UserView.from(user))
                         .build());
     }
 
@@ -73,30 +87,67 @@ public class AuthController {
         user.setOnline(true);
         user.setLastSeen(new Date());
         userRepository.save(user);
+        principalCache.invalidate(user.getId());
 
         String token = jwtUtil.generateToken(user.getId());
 
         return ResponseEntity.ok(AuthResponse.builder()
                 .message("Login successful")
                 .token(token)
-                .user(stripPassword(user))
+                .user(UserView.from(user))
                 .build());
     }
 
     @GetMapping("/me")
     public ResponseEntity<?> getMe() {
-        User user = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        AuthenticatedUser principal = (AuthenticatedUser) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        User user = userRepository.findById(principal.getId()).orElse(null);
+
+        if (user == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", "User not found"));
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("user", UserView.from(user));
+        return ResponseEntity.ok(response);
+    }
+
+    @PutMapping("/me")
+    public ResponseEntity<?> updateProfile(@RequestBody UpdateProfileRequest request) {
+        AuthenticatedUser principal = (AuthenticatedUser) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        User user = userRepository.findById(principal.getId()).orElse(null);
+
+        if (user == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", "User not found"));
+        }
+
+        if (request.getDisplayName() != null) {
+            user.setDisplayName(request.getDisplayName());
+        }
+        if (request.getAvatar() != null) {
+            user.setAvatar(request.getAvatar());
+        }
+        userRepository.save(user);
+        principalCache.invalidate(user.getId());
+        userSearchService.index(user);
+
         Map<String, Object> response = new HashMap<>();
-        response.put("user", stripPassword(user));
+        response.put("message", "Profile updated successfully");
+        response.put("user", UserView.from(user));
         return ResponseEntity.ok(response);
     }
 
     @PostMapping("/logout")
     public ResponseEntity<?> logout() {
-        User user = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
-        user.setOnline(false);
-        user.setLastSeen(new Date());
-        userRepository.save(user);
+        AuthenticatedUser principal = (AuthenticatedUser) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        User user = userRepository.findById(principal.getId()).orElse(null);
+
+        if (user != null) {
+            user.setOnline(false);
+            user.setLastSeen(new Date());
+            userRepository.save(user);
+        }
+        principalCache.invalidate(principal.getId());
 
         Map<String, String> response = new HashMap<>();
         response.put("message", "Logout successful");
@@ -111,38 +162,15 @@ public class AuthController {
             return ResponseEntity.badRequest().body(response);
         }
 
-        User currentUser = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
-
-        // MongoDB Regex Search on multiple fields, excluding current user
-        List<User> users = userRepository.findAll().stream() // Simplified for now
-                .filter(u -> !u.getId().equals(currentUser.getId()))
-                .filter(u -> (u.getUsername() != null && u.getUsername().toLowerCase().contains(query.toLowerCase())) ||
-                        (u.getDisplayName() != null && u.getDisplayName().toLowerCase().contains(query.toLowerCase()))
-                        ||
-                        (u.getEmail() != null && u.getEmail().toLowerCase().contains(query.toLowerCase())))
-                .limit(10)
-                .map(this::stripPassword)
+        AuthenticatedUser currentUser = (AuthenticatedUser) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+
+        // Substring match on username, displayName and email, excluding current user
+        List<UserView> users = userSearchService.search(query, currentUser.getId(), 10).stream()
+                .map(UserView::from)
                 .collect(java.util.stream.Collectors.toList());
 
         Map<String, Object> response = new HashMap<>();
         response.put("users", users);
         return ResponseEntity.ok(response);
     }
-
-    private User stripPassword(User user) {
-        User safeUser = User.builder()
-                .id(user.getId())
-                .username(user.getUsername())
-                .email(user.getEmail())
-                .displayName(user.getDisplayName())
-                .avatar(user.getAvatar())
-                .isOnline(user.isOnline())
-                .lastSeen(user.getLastSeen())
-                .friends(user.getFriends())
-                .meetups(user.getMeetups())
-                .createdAt(user.getCreatedAt())
-                .updatedAt(user.getUpdatedAt())
-                .build();
-        return safeUser;
-    }
 }
@@ -0,0 +1,53 @@
+package com.trulo.trulomeetuptracker.controller;
+
+import com.trulo.trulomeetuptracker.model.Meetup;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+// Access checks and ETags shared by the servlet and reactive meetup controllers
+final class MeetupAccess {
+
+    private MeetupAccess() {
+    }
+
+    static boolean canView(Meetup meetup, String userId) {
+        boolean isParticipant = meetup.getParticipants().stream()
+                .anyMatch(p -> p.getUser().equals(userId));
+        boolean isCreator = meetup.getCreator().equals(userId);
+        return isParticipant || isCreator;
+    }
+
+    // Strong validator: every write bumps version and updatedAt
+    static String etag(Meetup meetup) {
+        return "\"" + meetup.getId() + "-" + versionOf(meetup) + "-" + updatedAtOf(meetup) + "\"";
+    }
+
+    // Aggregate validator over every row of a listing page (including the look-ahead row)
+    static String pageEtag(String userId, List<Meetup> page) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(userId.getBytes(StandardCharsets.UTF_8));
+            for (Meetup meetup : page) {
+                String row = ";" + meetup.getId() + ":" + versionOf(meetup) + ":" + updatedAtOf(meetup);
+                digest.update(row.getBytes(StandardCharsets.UTF_8));
+            }
+            byte[] hash = Arrays.copyOf(digest.digest(), 16);
+            return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(hash) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static long versionOf(Meetup meetup) {
+        return meetup.getVersion() != null ? meetup.getVersion() : 0;
+    }
+
+    private static long updatedAtOf(Meetup meetup) {
+        return meetup.getUpdatedAt() != null ? meetup.getUpdatedAt().toEpochMilli() : 0;
+    }
+}
@@ -1,33 +1,75 @@
 package com.trulo.trulomeetuptracker.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.trulo.trulomeetuptracker.dto.MeetupRequest;
+import com.trulo.trulomeetuptracker.dto.MeetupView;
 import com.trulo.trulomeetuptracker.model.Meetup;
-import com.trulo.trulomeetuptracker.model.User;
+import com.trulo.trulomeetuptracker.repository.MeetupCursor;
 import com.trulo.trulomeetuptracker.repository.MeetupRepository;
-import com.trulo.trulomeetuptracker.repository.UserRepository;
+import com.trulo.trulomeetuptracker.security.AuthenticatedUser;
+import com.trulo.trulomeetuptracker.service.InviteCodeAllocator;
+import com.trulo.trulomeetuptracker.service.InviteCodeCache;
+import com.trulo.trulomeetuptracker.service.MeetupHydrator;
+import com.trulo.trulomeetuptracker.service.MeetupLifecycleScheduler;
+import com.trulo.trulomeetuptracker.tracking.ActiveMeetupCache;
+import com.trulo.trulomeetuptracker.tracking.LocationReplay;
+import com.trulo.trulomeetuptracker.tracking.MeetupSpatialIndex;
+import com.trulo.trulomeetuptracker.tracking.NearbyUser;
+import com.trulo.trulomeetuptracker.tracking.SpatialGrid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.time.Instant;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("/api/meetups")
 public class MeetupController {
 
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_INVITE_CODE_ATTEMPTS = 5;
+
     @Autowired
     private MeetupRepository meetupRepository;
 
     @Autowired
-    private UserRepository userRepository;
+    private MeetupHydrator meetupHydrator;
+
+    @Autowired
+    private MeetupSpatialIndex spatialIndex;
+
+    @Autowired
+    private ActiveMeetupCache meetupCache;
+
+    @Autowired
+    private LocationReplay locationReplay;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private InviteCodeAllocator inviteCodeAllocator;
+
+    @Autowired
+    private InviteCodeCache inviteCodeCache;
+
+    @Autowired
+    private MeetupLifecycleScheduler lifecycleScheduler;
 
     @PostMapping
     public ResponseEntity<?> createMeetup(@RequestBody MeetupRequest request) {
-        User currentUser = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        AuthenticatedUser currentUser = (AuthenticatedUser) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
 
         Meetup meetup = Meetup.builder()
                 .title(request.getTitle())
@@ -41,13 +83,17 @@ public class MeetupController {
                 .build();
 
         if (!meetup.isPrivate()) {
-            meetup.setInviteCode(generateInviteCode());
+            meetup.setInviteCode(inviteCodeAllocator.next());
         }
 
         Meetup.Participant currentParticipant = new Meetup.Participant(currentUser.getId(), "accepted", new Date());
         meetup.getParticipants().add(currentParticipant);
 
-        meetupRepository.save(meetup);
+        saveNewMeetup(meetup);
+        if (meetup.getInviteCode() != null) {
+            inviteCodeCache.put(meetup.getInviteCode(), meetup.getId());
+        }
+        lifecycleScheduler.schedule(meetup);
 
         Map<String, Object> response = new HashMap<>();
         response.put("message", "Meetup created successfully");
@@ -57,79 +103,161 @@ public class MeetupController {
     }
 
     @GetMapping
-    public ResponseEntity<?> getMeetups(@RequestParam(required = false) String status) {
-        User currentUser = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
-
-        List<Meetup> creatorMeetups = meetupRepository.findByCreator(currentUser.getId());
-        List<Meetup> participantMeetups = meetupRepository.findByParticipants_User(currentUser.getId());
-
-        Set<Meetup> allMeetups = new HashSet<>();
-        allMeetups.addAll(creatorMeetups);
-        allMeetups.addAll(participantMeetups);
-
-        List<Map<String, Object>> sortedMeetups = allMeetups.stream()
-                .filter(m -> status == null || status.equals(m.getStatus()))
-                .sorted((m1, m2) -> {
-                    if (m1.getScheduledTime() == null)
-                        return 1;
-                    if (m2.getScheduledTime() == null)
-                        return -1;
-                    return m2.getScheduledTime().compareTo(m1.getScheduledTime()); // descending
-                })
-                .map(this::populateMeetup)
-                .collect(Collectors.toList());
+    public ResponseEntity<?> getMeetups(@RequestParam(required = false) String status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            WebRequest request) {
+        AuthenticatedUser currentUser = (AuthenticatedUser) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+
+        MeetupCursor after = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            try {
+                after = MeetupCursor.decode(cursor);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("message", "Invalid cursor"));
+            }
+        }
+        int pageSize = Math.max(1, Math.min(limit != null ? limit : DEFAULT_PAGE_SIZE, MAX_PAGE_SIZE));
+
+        // Revalidation only reads the sort keys and versions of the page
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+            List<Meetup> validators = meetupRepository.findPageValidatorsForUser(currentUser.getId(), status, after,
+                    pageSize + 1);
+            if (request.checkNotModified(MeetupAccess.pageEtag(currentUser.getId(), validators))) {
+                return null;
+            }
+        }
+
+        // One extra row tells whether there is a next page
+        List<Meetup> meetups = meetupRepository.findPageForUser(currentUser.getId(), status, after, pageSize + 1);
+        if (request.checkNotModified(MeetupAccess.pageEtag(currentUser.getId(), meetups))) {
+            return null;
+        }
+        String nextCursor = null;
+        if (meetups.size() > pageSize) {
+            meetups = meetups.subList(0, pageSize);
+            Meetup last = meetups.get(pageSize - 1);
+            nextCursor = new MeetupCursor(last.getScheduledTime(), last.getId()).encode();
+        }
 
         Map<String, Object> response = new HashMap<>();
-        response.put("meetups", sortedMeetups);
+        response.put("meetups", meetupHydrator.hydrate(meetups));
+        response.put("nextCursor", nextCursor);
         return ResponseEntity.ok(response);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<?> getMeetup(@PathVariable String id) {
-        User currentUser = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+    public ResponseEntity<?> getMeetup(@PathVariable String id, WebRequest request) {
+        AuthenticatedUser currentUser = (AuthenticatedUser) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+
+        // Answer revalidation from a projection, without loading and hydrating the meetup
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+            Meetup validator = meetupRepository.findValidatorById(id).orElse(null);
+            if (validator != null && MeetupAccess.canView(validator, currentUser.getId())
+                    && request.checkNotModified(MeetupAccess.etag(validator))) {
+                return null;
+            }
+        }
+
         Meetup meetup = meetupRepository.findById(id).orElse(null);
 
         if (meetup == null) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", "Meetup not found"));
         }
 
-        boolean isParticipant = meetup.getParticipants().stream()
-                .anyMatch(p -> p.getUser().equals(currentUser.getId()));
-        boolean isCreator = meetup.getCreator().equals(currentUser.getId());
-
-        if (!isParticipant && !isCreator) {
+        if (!MeetupAccess.canView(meetup, currentUser.getId())) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("message", "Access denied"));
         }
 
+        // Sets the ETag header
+        if (request.checkNotModified(MeetupAccess.etag(meetup))) {
+            return null;
+        }
+
         return ResponseEntity.ok(Map.of("meetup", populateMeetup(meetup)));
     }
 
-    @PostMapping("/join/{inviteCode}")
-    public ResponseEntity<?> joinMeetup(@PathVariable String inviteCode) {
-        User currentUser = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
-        Meetup meetup = meetupRepository.findByInviteCode(inviteCode).orElse(null);
+    @GetMapping("/{id}/nearby")
+    public ResponseEntity<?> getNearby(@PathVariable String id,
+            @RequestParam(required = false) Double latitude,
+            @RequestParam(required = false) Double longitude,
+            @RequestParam(required = false) Double radius,
+            @RequestParam(required = false) Integer k) {
+        AuthenticatedUser currentUser = (AuthenticatedUser) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        Meetup meetup = meetupRepository.findById(id).orElse(null);
 
         if (meetup == null) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", "Invalid invite code"));
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", "Meetup not found"));
         }
 
-        Optional<Meetup.Participant> existingOpt = meetup.getParticipants().stream()
-                .filter(p -> p.getUser().equals(currentUser.getId()))
-                .findFirst();
+        if (!MeetupAccess.canView(meetup, currentUser.getId())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("message", "Access denied"));
+        }
 
-        if (existingOpt.isPresent()) {
-            Meetup.Participant existing = existingOpt.get();
-            if ("accepted".equals(existing.getStatus())) {
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                        .body(Map.of("message", "You are already part of this meetup"));
+        // Center defaults to the caller's live position, then to the meetup point
+        if (latitude == null || longitude == null) {
+            SpatialGrid.Position own = spatialIndex.position(id, currentUser.getId());
+            Meetup.Coordinates point = meetup.getLocation() != null ? meetup.getLocation().getCoordinates() : null;
+            if (own != null) {
+                latitude = own.getLatitude();
+                longitude = own.getLongitude();
+            } else if (point != null && point.getLatitude() != null && point.getLongitude() != null) {
+                latitude = point.getLatitude();
+                longitude = point.getLongitude();
             } else {
-                existing.setStatus("accepted");
+                return ResponseEntity.badRequest().body(Map.of("message", "latitude and longitude are required"));
             }
-        } else {
-            meetup.getParticipants().add(new Meetup.Participant(currentUser.getId(), "accepted", new Date()));
         }
 
-        meetupRepository.save(meetup);
+        List<NearbyUser> users = spatialIndex.query(id, latitude, longitude, radius, k, currentUser.getId());
+        return ResponseEntity.ok(Map.of("users", users));
+    }
+
+    // Recorded movements as NDJSON in time order, simplified to the given tolerance (metres)
+    @GetMapping("/{id}/replay")
+    public ResponseEntity<StreamingResponseBody> replay(@PathVariable String id,
+            @RequestParam(defaultValue = "10") double tolerance,
+            @RequestParam(defaultValue = "60") long maxGap) {
+        AuthenticatedUser currentUser = (AuthenticatedUser) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        Meetup meetup = meetupRepository.findById(id).orElse(null);
+
+        if (meetup == null) {
+            return streamedError(HttpStatus.NOT_FOUND, "Meetup not found");
+        }
+
+        if (!MeetupAccess.canView(meetup, currentUser.getId())) {
+            return streamedError(HttpStatus.FORBIDDEN, "Access denied");
+        }
+
+        double toleranceMeters = Math.max(0, tolerance);
+        long maxGapMillis = TimeUnit.SECONDS.toMillis(Math.max(1, maxGap));
+        StreamingResponseBody body = out -> locationReplay.stream(id, toleranceMeters, maxGapMillis, out);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+
+    @PostMapping("/join/{inviteCode}")
+    public ResponseEntity<?> joinMeetup(@PathVariable String inviteCode) {
+        AuthenticatedUser currentUser = (AuthenticatedUser) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        String meetupId = inviteCodeCache.meetupId(inviteCode).orElse(null);
+
+        if (meetupId == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", "Invalid invite code"));
+        }
+
+        Meetup meetup = meetupRepository.acceptInvite(meetupId, currentUser.getId());
+
+        if (meetup == null) {
+            if (!meetupRepository.existsById(meetupId)) {
+                // Deleted since it was cached
+                inviteCodeCache.invalidate(inviteCode);
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", "Invalid invite code"));
+            }
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("message", "You are already part of this meetup"));
+        }
 
         return ResponseEntity.ok(Map.of(
                 "message", "Successfully joined meetup",
@@ -138,7 +266,7 @@ public class MeetupController {
 
     @PostMapping("/{id}/invite")
     public ResponseEntity<?> inviteUsers(@PathVariable String id, @RequestBody Map<String, List<String>> body) {
-        User currentUser = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        AuthenticatedUser currentUser = (AuthenticatedUser) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
         Meetup meetup = meetupRepository.findById(id).orElse(null);
 
         if (meetup == null) {
@@ -150,41 +278,30 @@ public class MeetupController {
         }
 
         List<String> userIds = body.getOrDefault("userIds", new ArrayList<>());
-        List<String> newParticipants = new ArrayList<>();
-
-        for (String userId : userIds) {
-            boolean exists = meetup.getParticipants().stream().anyMatch(p -> p.getUser().equals(userId));
-            if (!exists) {
-                meetup.getParticipants().add(new Meetup.Participant(userId, "invited", new Date()));
-                newParticipants.add(userId);
-            }
-        }
+        int invited = meetupRepository.addInvitedParticipants(id, new LinkedHashSet<>(userIds));
 
-        if (!newParticipants.isEmpty()) {
-            meetupRepository.save(meetup);
+        if (invited > 0) {
+            meetup = meetupRepository.findById(id).orElse(meetup);
         }
 
         return ResponseEntity.ok(Map.of(
-                "message", "Invited " + newParticipants.size() + " users to meetup",
+                "message", "Invited " + invited + " users to meetup",
                 "meetup", populateMeetup(meetup)));
     }
 
     @PatchMapping("/{id}/status")
     public ResponseEntity<?> updateStatus(@PathVariable String id, @RequestBody Map<String, String> body) {
-        User currentUser = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
-        Meetup meetup = meetupRepository.findById(id).orElse(null);
+        AuthenticatedUser currentUser = (AuthenticatedUser) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        Meetup meetup = meetupRepository.updateStatus(id, currentUser.getId(), body.get("status"));
 
         if (meetup == null) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", "Meetup not found"));
-        }
-
-        if (!meetup.getCreator().equals(currentUser.getId())) {
+            if (!meetupRepository.existsById(id)) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", "Meetup not found"));
+            }
             return ResponseEntity.status(HttpStatus.FORBIDDEN)
                     .body(Map.of("message", "Only creator can update meetup status"));
         }
-
-        meetup.setStatus(body.get("status"));
-        meetupRepository.save(meetup);
+        lifecycleScheduler.statusChanged(meetup);
 
         return ResponseEntity.ok(Map.of(
                 "message", "Meetup status updated",
@@ -193,27 +310,22 @@ public class MeetupController {
 
     @DeleteMapping("/{id}/leave")
     public ResponseEntity<?> leaveMeetup(@PathVariable String id) {
-        User currentUser = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
-        Meetup meetup = meetupRepository.findById(id).orElse(null);
-
-        if (meetup == null) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", "Meetup not found"));
-        }
+        AuthenticatedUser currentUser = (AuthenticatedUser) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
 
-        if (meetup.getCreator().equals(currentUser.getId())) {
+        if (!meetupRepository.removeParticipant(id, currentUser.getId())) {
+            if (!meetupRepository.existsById(id)) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", "Meetup not found"));
+            }
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body(Map.of("message", "Creator cannot leave meetup. Delete it instead."));
         }
 
-        meetup.getParticipants().removeIf(p -> p.getUser().equals(currentUser.getId()));
-        meetupRepository.save(meetup);
-
         return ResponseEntity.ok(Map.of("message", "Left meetup successfully"));
     }
 
     @DeleteMapping("/{id}")
     public ResponseEntity<?> deleteMeetup(@PathVariable String id) {
-        User currentUser = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        AuthenticatedUser currentUser = (AuthenticatedUser) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
         Meetup meetup = meetupRepository.findById(id).orElse(null);
 
         if (meetup == null) {
@@ -226,68 +338,37 @@ public class MeetupController {
         }
 
         meetupRepository.deleteById(id);
+        meetupCache.invalidate(id);
+        lifecycleScheduler.cancel(id);
+        if (meetup.getInviteCode() != null) {
+            inviteCodeCache.invalidate(meetup.getInviteCode());
+        }
         return ResponseEntity.ok(Map.of("message", "Meetup deleted successfully"));
     }
 
-    private String generateInviteCode() {
-        String chars = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
-        StringBuilder sb = new StringBuilder();
-        Random rnd = new Random();
-        for (int i = 0; i < 6; i++) {
-            sb.append(chars.charAt(rnd.nextInt(chars.length())));
-        }
-        return sb.toString();
+    // Streaming endpoints can't return a Map body, so write the usual {"message": ...} JSON directly
+    private ResponseEntity<StreamingResponseBody> streamedError(HttpStatus status, String message) {
+        return ResponseEntity.status(status)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> objectMapper.writeValue(out, Map.of("message", message)));
     }
 
-    private Map<String, Object> populateMeetup(Meetup meetup) {
-        Map<String, Object> populated = new HashMap<>();
-        populated.put("_id", meetup.getId());
-        populated.put("title", meetup.getTitle());
-        populated.put("description", meetup.getDescription());
-        populated.put("location", meetup.getLocation());
-        populated.put("scheduledTime", meetup.getScheduledTime());
-        populated.put("duration", meetup.getDuration());
-        populated.put("status", meetup.getStatus());
-        populated.put("isPrivate", meetup.isPrivate());
-        populated.put("inviteCode", meetup.getInviteCode());
-        populated.put("settings", meetup.getSettings());
-        populated.put("createdAt", meetup.getCreatedAt());
-
-        // Populate Creator
-        User creator = userRepository.findById(meetup.getCreator()).orElse(null);
-        if (creator != null) {
-            Map<String, String> cMap = new HashMap<>();
-            cMap.put("_id", creator.getId());
-            cMap.put("username", creator.getUsername());
-            cMap.put("displayName", creator.getDisplayName());
-            cMap.put("avatar", creator.getAvatar());
-            populated.put("creator", cMap);
-        } else {
-            populated.put("creator", meetup.getCreator()); // Fallback to ID
-        }
-
-        // Populate Participants
-        List<Map<String, Object>> parts = new ArrayList<>();
-        for (Meetup.Participant p : meetup.getParticipants()) {
-            Map<String, Object> pMap = new HashMap<>();
-            pMap.put("status", p.getStatus());
-            pMap.put("joinedAt", p.getJoinedAt());
-
-            User u = userRepository.findById(p.getUser()).orElse(null);
-            if (u != null) {
-                Map<String, String> uMap = new HashMap<>();
-                uMap.put("_id", u.getId());
-                uMap.put("username", u.getUsername());
-                uMap.put("displayName", u.getDisplayName());
-                uMap.put("avatar", u.getAvatar());
-                pMap.put("user", uMap);
-            } else {
-                pMap.put("user", p.getUser()); // Fallback to ID
+    private void saveNewMeetup(Meetup meetup) {
+        // Allocated codes never repeat, but may still match a code issued before the allocator
+        for (int attempt = 1; ; attempt++) {
+            try {
+                meetupRepository.save(meetup);
+                return;
+            } catch (DuplicateKeyException e) {
+                if (meetup.getInviteCode() == null || attempt >= MAX_INVITE_CODE_ATTEMPTS) {
+                    throw e;
+                }
+                meetup.setInviteCode(inviteCodeAllocator.next());
             }
-            parts.add(pMap);
         }
-        populated.put("participants", parts);
+    }
 
-        return populated;
+    private MeetupView populateMeetup(Meetup meetup) {
+        return meetupHydrator.hydrate(meetup);
     }
 }
@@ -0,0 +1,197 @@
+package com.trulo.trulomeetuptracker.controller;
+
+import com.trulo.trulomeetuptracker.dto.AuthResponse;
+import com.trulo.trulomeetuptracker.dto.LoginRequest;
+import com.trulo.trulomeetuptracker.dto.RegisterRequest;
+import com.trulo.trulomeetuptracker.dto.UpdateProfileRequest;
+import com.trulo.trulomeetuptracker.dto.UserView;
+import com.trulo.trulomeetuptracker.model.User;
+import com.trulo.trulomeetuptracker.repository.reactive.ReactiveUserRepository;
+import com.trulo.trulomeetuptracker.security.AuthenticatedUser;
+import com.trulo.trulomeetuptracker.security.JwtUtil;
+import com.trulo.trulomeetuptracker.security.PrincipalCache;
+import com.trulo.trulomeetuptracker.service.UserSearchService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// AuthController for the "reactive" profile, with the same paths and responses
+@RestController
+@Profile("reactive")
+@RequestMapping("/api/auth")
+public class ReactiveAuthController {
+
+    @Autowired
+    private ReactiveUserRepository userRepository;
+
+    @Autowired
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private PrincipalCache principalCache;
+
+    @Autowired
+    private UserSearchService userSearchService;
+
+    @PostMapping("/register")
+    public Mono<ResponseEntity<?>> register(@RequestBody RegisterRequest request) {
+        return Mono.zip(userRepository.existsByEmail(request.getEmail()),
+                        userRepository.existsByUsername(request.getUsername()))
+                .flatMap(exists -> {
+                    if (exists.getT1() || exists.getT2()) {
+                        return Mono.just(ResponseEntity.badRequest()
+                                .body(Map.of("message", "User with this email or username already exists")));
+                    }
+
+                    return encode(request.getPassword())
+                            .map(password -> User.builder()
+                                    .username(request.getUsername())
+                                    .email(request.getEmail().toLowerCase())
+                                    .password(password)
+                                    .displayName(request.getDisplayName())
+                                    .isOnline(false)
+                                    .build())
+                            .flatMap(userRepository::save)
+                            .map(user -> {
+                                userSearchService.index(user);
+                                return ResponseEntity.status(HttpStatus.CREATED)
+                                        .body(AuthResponse.builder()
+                                                .message("User created successfully")
+                                                .token(jwtUtil.generateToken(user.getId()))
+                                                .user(UserView.from(user))
+                                                .build());
+                            });
+                });
+    }
+
+    @PostMapping("/login")
+    public Mono<ResponseEntity<?>> login(@RequestBody LoginRequest request) {
+        ResponseEntity<?> invalid = ResponseEntity.badRequest().body(Map.of("message", "Invalid credentials"));
+
+        return userRepository.findByEmail(request.getEmail())
+                .filterWhen(user -> matches(request.getPassword(), user.getPassword()))
+                .flatMap(user -> {
+                    user.setOnline(true);
+                    user.setLastSeen(new Date());
+                    return userRepository.save(user);
+                })
+                .<ResponseEntity<?>>map(user -> {
+                    principalCache.invalidate(user.getId());
+                    return ResponseEntity.ok(AuthResponse.builder()
+                            .message("Login successful")
+                            .token(jwtUtil.generateToken(user.getId()))
+                            .user(UserView.from(user))
+                            .build());
+                })
+                .defaultIfEmpty(invalid);
+    }
+
+    @GetMapping("/me")
+    public Mono<ResponseEntity<?>> getMe(@AuthenticationPrincipal AuthenticatedUser principal) {
+        return userRepository.findById(principal.getId())
+                .<ResponseEntity<?>>map(user -> ResponseEntity.ok(Map.of("user", UserView.from(user))))
+                .defaultIfEmpty(userNotFound());
+    }
+
+    @PutMapping("/me")
+    public Mono<ResponseEntity<?>> updateProfile(@AuthenticationPrincipal AuthenticatedUser principal,
+            @RequestBody UpdateProfileRequest request) {
+        return userRepository.findById(principal.getId())
+                .flatMap(user -> {
+                    if (request.getDisplayName() != null) {
+                        user.setDisplayName(request.getDisplayName());
+                    }
+                    if (request.getAvatar() != null) {
+                        user.setAvatar(request.getAvatar());
+                    }
+                    return userRepository.save(user);
+                })
+                .<ResponseEntity<?>>map(user -> {
+                    principalCache.invalidate(user.getId());
+                    userSearchService.index(user);
+                    return ResponseEntity.ok(Map.of(
+                            "message", "Profile updated successfully",
+                            "user", UserView.from(user)));
+                })
+                .defaultIfEmpty(userNotFound());
+    }
+
+    @PostMapping("/logout")
+    public Mono<ResponseEntity<?>> logout(@AuthenticationPrincipal AuthenticatedUser principal) {
+        return userRepository.findById(principal.getId())
+                .flatMap(user -> {
+                    user.setOnline(false);
+                    user.setLastSeen(new Date());
+                    return userRepository.save(user);
+                })
+                .then(Mono.fromCallable(() -> {
+                    principalCache.invalidate(principal.getId());
+                    return ResponseEntity.ok(Map.of("message", "Logout successful"));
+                }));
+    }
+
+    @GetMapping("/users/search")
+    public Mono<ResponseEntity<?>> searchUsers(@AuthenticationPrincipal AuthenticatedUser currentUser,
+            @RequestParam String query) {
+        if (query == null || query.length() < 2) {
+            return Mono.just(ResponseEntity.badRequest()
+                    .body(Map.of("message", "Query must be at least 2 characters")));
+        }
+
+        // Substring match on username, displayName and email, excluding current user
+        return search(query, currentUser.getId(), 10)
+                .map(UserView::from)
+                .collectList()
+                .map(users -> ResponseEntity.ok(Map.of("users", users)));
+    }
+
+    // Same lookup as UserSearchService.search, loading the matched users without blocking
+    private Flux<User> search(String query, String excludeUserId, int limit) {
+        List<String> ids = userSearchService.searchIndex(query, excludeUserId, limit).orElse(null);
+        if (ids == null) {
+            return mongoTemplate.find(userSearchService.mongoQuery(query, excludeUserId, limit), User.class);
+        }
+        if (ids.isEmpty()) {
+            return Flux.empty();
+        }
+        return userRepository.findAllById(ids)
+                .collect(Collectors.toMap(User::getId, Function.identity()))
+                .flatMapIterable(byId -> ids.stream()
+                        .map(byId::get)
+                        .filter(user -> user != null)
+                        .collect(Collectors.toList()));
+    }
+
+    // BCrypt is deliberately slow, so keep it off the event loop
+    private Mono<String> encode(String password) {
+        return Mono.fromCallable(() -> passwordEncoder.encode(password)).subscribeOn(Schedulers.parallel());
+    }
+
+    private Mono<Boolean> matches(String password, String encoded) {
+        return Mono.fromCallable(() -> passwordEncoder.matches(password, encoded)).subscribeOn(Schedulers.parallel());
+    }
+
+    private static ResponseEntity<?> userNotFound() {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", "User not found"));
+    }
+}
@@ -0,0 +1,381 @@
+package com.trulo.trulomeetuptracker.controller;
+
+import com.trulo.trulomeetuptracker.dto.MeetupRequest;
+import com.trulo.trulomeetuptracker.model.Meetup;
+import com.trulo.trulomeetuptracker.repository.MeetupCursor;
+import com.trulo.trulomeetuptracker.repository.reactive.ReactiveMeetupRepository;
+import com.trulo.trulomeetuptracker.security.AuthenticatedUser;
+import com.trulo.trulomeetuptracker.service.InviteCodeAllocator;
+import com.trulo.trulomeetuptracker.service.InviteCodeCache;
+import com.trulo.trulomeetuptracker.service.MeetupLifecycleScheduler;
+import com.trulo.trulomeetuptracker.service.ReactiveMeetupHydrator;
+import com.trulo.trulomeetuptracker.tracking.ActiveMeetupCache;
+import com.trulo.trulomeetuptracker.tracking.MeetupSpatialIndex;
+import com.trulo.trulomeetuptracker.tracking.NearbyUser;
+import com.trulo.trulomeetuptracker.tracking.ReactiveLocationReplay;
+import com.trulo.trulomeetuptracker.tracking.SpatialGrid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+// MeetupController for the "reactive" profile, with the same paths, responses and ETags
+@RestController
+@Profile("reactive")
+@RequestMapping("/api/meetups")
+public class ReactiveMeetupController {
+
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_INVITE_CODE_ATTEMPTS = 5;
+
+    @Autowired
+    private ReactiveMeetupRepository meetupRepository;
+
+    @Autowired
+    private ReactiveMeetupHydrator meetupHydrator;
+
+    @Autowired
+    private MeetupSpatialIndex spatialIndex;
+
+    @Autowired
+    private ActiveMeetupCache meetupCache;
+
+    @Autowired
+    private ReactiveLocationReplay locationReplay;
+
+    @Autowired
+    private InviteCodeAllocator inviteCodeAllocator;
+
+    @Autowired
+    private InviteCodeCache inviteCodeCache;
+
+    @Autowired
+    private MeetupLifecycleScheduler lifecycleScheduler;
+
+    @PostMapping
+    public Mono<ResponseEntity<?>> createMeetup(@AuthenticationPrincipal AuthenticatedUser currentUser,
+            @RequestBody MeetupRequest request) {
+        Meetup meetup = Meetup.builder()
+                .title(request.getTitle())
+                .description(request.getDescription())
+                .creator(currentUser.getId())
+                .location(request.getLocation())
+                .scheduledTime(request.getScheduledTime())
+                .duration(request.getDuration())
+                .isPrivate(request.isPrivate())
+                .settings(request.getSettings() != null ? request.getSettings() : new Meetup.Settings())
+                .build();
+
+        Meetup.Participant currentParticipant = new Meetup.Participant(currentUser.getId(), "accepted", new Date());
+        meetup.getParticipants().add(currentParticipant);
+
+        Mono<Meetup> withCode = meetup.isPrivate()
+                ? Mono.just(meetup)
+                : nextInviteCode().map(code -> {
+                    meetup.setInviteCode(code);
+                    return meetup;
+                });
+
+        return withCode
+                .flatMap(m -> saveNewMeetup(m, 1))
+                .flatMap(saved -> {
+                    if (saved.getInviteCode() != null) {
+                        inviteCodeCache.put(saved.getInviteCode(), saved.getId());
+                    }
+                    lifecycleScheduler.schedule(saved);
+                    return meetupHydrator.hydrate(saved);
+                })
+                .map(view -> ResponseEntity.status(HttpStatus.CREATED).body(Map.of(
+                        "message", "Meetup created successfully",
+                        "meetup", view)));
+    }
+
+    @GetMapping
+    public Mono<ResponseEntity<?>> getMeetups(@AuthenticationPrincipal AuthenticatedUser currentUser,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            ServerWebExchange exchange) {
+        MeetupCursor after = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            try {
+                after = MeetupCursor.decode(cursor);
+            } catch (IllegalArgumentException e) {
+                return Mono.just(ResponseEntity.badRequest().body(Map.of("message", "Invalid cursor")));
+            }
+        }
+        int pageSize = Math.max(1, Math.min(limit != null ? limit : DEFAULT_PAGE_SIZE, MAX_PAGE_SIZE));
+        String userId = currentUser.getId();
+        MeetupCursor from = after;
+
+        // One extra row tells whether there is a next page
+        Mono<ResponseEntity<?>> full = meetupRepository.findPageForUser(userId, status, from, pageSize + 1)
+                .collectList()
+                .flatMap(meetups -> {
+                    if (exchange.checkNotModified(MeetupAccess.pageEtag(userId, meetups))) {
+                        return Mono.empty();
+                    }
+                    String nextCursor = null;
+                    List<Meetup> page = meetups;
+                    if (page.size() > pageSize) {
+                        page = page.subList(0, pageSize);
+                        Meetup last = page.get(pageSize - 1);
+                        nextCursor = new MeetupCursor(last.getScheduledTime(), last.getId()).encode();
+                    }
+
+                    String next = nextCursor;
+                    return meetupHydrator.hydrate(page).map(views -> {
+                        Map<String, Object> response = new HashMap<>();
+                        response.put("meetups", views);
+                        response.put("nextCursor", next);
+                        return ResponseEntity.ok(response);
+                    });
+                });
+
+        // Revalidation only reads the sort keys and versions of the page
+        if (exchange.getRequest().getHeaders().getFirst(HttpHeaders.IF_NONE_MATCH) == null) {
+            return full;
+        }
+        return meetupRepository.findPageValidatorsForUser(userId, status, from, pageSize + 1)
+                .collectList()
+                .flatMap(validators -> exchange.checkNotModified(MeetupAccess.pageEtag(userId, validators))
+                        ? Mono.<ResponseEntity<?>>empty()
+                        : full);
+    }
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<?>> getMeetup(@AuthenticationPrincipal AuthenticatedUser currentUser,
+            @PathVariable String id, ServerWebExchange exchange) {
+        Mono<ResponseEntity<?>> full = meetupRepository.findById(id)
+                .flatMap(meetup -> {
+                    if (!MeetupAccess.canView(meetup, currentUser.getId())) {
+                        return Mono.just(accessDenied());
+                    }
+                    // Sets the ETag header
+                    if (exchange.checkNotModified(MeetupAccess.etag(meetup))) {
+                        return Mono.empty();
+                    }
+                    return meetupHydrator.hydrate(meetup).map(view -> ResponseEntity.ok(Map.of("meetup", view)));
+                })
+                .switchIfEmpty(Mono.defer(() -> notModified(exchange) ? Mono.empty() : Mono.just(meetupNotFound())));
+
+        // Answer revalidation from a projection, without loading and hydrating the meetup
+        if (exchange.getRequest().getHeaders().getFirst(HttpHeaders.IF_NONE_MATCH) == null) {
+            return full;
+        }
+        return meetupRepository.findValidatorById(id)
+                .filter(validator -> MeetupAccess.canView(validator, currentUser.getId())
+                        && exchange.checkNotModified(MeetupAccess.etag(validator)))
+                .<ResponseEntity<?>>flatMap(validator -> Mono.empty())
+                .switchIfEmpty(Mono.defer(() -> notModified(exchange) ? Mono.empty() : full));
+    }
+
+    @GetMapping("/{id}/nearby")
+    public Mono<ResponseEntity<?>> getNearby(@AuthenticationPrincipal AuthenticatedUser currentUser,
+            @PathVariable String id,
+            @RequestParam(required = false) Double latitude,
+            @RequestParam(required = false) Double longitude,
+            @RequestParam(required = false) Double radius,
+            @RequestParam(required = false) Integer k) {
+        return meetupRepository.findById(id)
+                .map(meetup -> {
+                    if (!MeetupAccess.canView(meetup, currentUser.getId())) {
+                        return accessDenied();
+                    }
+
+                    // Center defaults to the caller's live position, then to the meetup point
+                    Double centerLatitude = latitude;
+                    Double centerLongitude = longitude;
+                    if (centerLatitude == null || centerLongitude == null) {
+                        SpatialGrid.Position own = spatialIndex.position(id, currentUser.getId());
+                        Meetup.Coordinates point = meetup.getLocation() != null
+                                ? meetup.getLocation().getCoordinates()
+                                : null;
+                        if (own != null) {
+                            centerLatitude = own.getLatitude();
+                            centerLongitude = own.getLongitude();
+                        } else if (point != null && point.getLatitude() != null && point.getLongitude() != null) {
+                            centerLatitude = point.getLatitude();
+                            centerLongitude = point.getLongitude();
+                        } else {
+                            return ResponseEntity.badRequest()
+                                    .body(Map.of("message", "latitude and longitude are required"));
+                        }
+                    }
+
+                    List<NearbyUser> users = spatialIndex.query(id, centerLatitude, centerLongitude, radius, k,
+                            currentUser.getId());
+                    return ResponseEntity.ok(Map.of("users", users));
+                })
+                .defaultIfEmpty(meetupNotFound());
+    }
+
+    // Recorded movements as NDJSON in time order, simplified to the given tolerance (metres)
+    @GetMapping("/{id}/replay")
+    public Mono<ResponseEntity<?>> replay(@AuthenticationPrincipal AuthenticatedUser currentUser,
+            @PathVariable String id,
+            @RequestParam(defaultValue = "10") double tolerance,
+            @RequestParam(defaultValue = "60") long maxGap) {
+        double toleranceMeters = Math.max(0, tolerance);
+        long maxGapMillis = TimeUnit.SECONDS.toMillis(Math.max(1, maxGap));
+
+        return meetupRepository.findValidatorById(id)
+                .<ResponseEntity<?>>map(meetup -> {
+                    if (!MeetupAccess.canView(meetup, currentUser.getId())) {
+                        return accessDenied();
+                    }
+                    return ResponseEntity.ok()
+                            .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                            .body(locationReplay.stream(id, toleranceMeters, maxGapMillis));
+                })
+                .defaultIfEmpty(meetupNotFound());
+    }
+
+    @PostMapping("/join/{inviteCode}")
+    public Mono<ResponseEntity<?>> joinMeetup(@AuthenticationPrincipal AuthenticatedUser currentUser,
+            @PathVariable String inviteCode) {
+        String cached = inviteCodeCache.getIfPresent(inviteCode);
+        Mono<String> meetupId = cached != null
+                ? Mono.just(cached)
+                : meetupRepository.findIdByInviteCode(inviteCode)
+                        .map(Meetup::getId)
+                        .doOnNext(id -> inviteCodeCache.put(inviteCode, id));
+
+        return meetupId
+                .flatMap(id -> meetupRepository.acceptInvite(id, currentUser.getId())
+                        .flatMap(meetup -> meetupHydrator.hydrate(meetup))
+                        .<ResponseEntity<?>>map(view -> ResponseEntity.ok(Map.of(
+                                "message", "Successfully joined meetup",
+                                "meetup", view)))
+                        .switchIfEmpty(Mono.defer(() -> meetupRepository.existsById(id).map(exists -> {
+                            if (!exists) {
+                                // Deleted since it was cached
+                                inviteCodeCache.invalidate(inviteCode);
+                                return invalidInviteCode();
+                            }
+                            return ResponseEntity.badRequest()
+                                    .body(Map.of("message", "You are already part of this meetup"));
+                        }))))
+                .defaultIfEmpty(invalidInviteCode());
+    }
+
+    @PostMapping("/{id}/invite")
+    public Mono<ResponseEntity<?>> inviteUsers(@AuthenticationPrincipal AuthenticatedUser currentUser,
+            @PathVariable String id, @RequestBody Map<String, List<String>> body) {
+        return meetupRepository.findById(id)
+                .<ResponseEntity<?>>flatMap(meetup -> {
+                    if (!meetup.getCreator().equals(currentUser.getId())) {
+                        return Mono.just(ResponseEntity.status(HttpStatus.FORBIDDEN)
+                                .body(Map.of("message", "Only creator can invite users")));
+                    }
+
+                    List<String> userIds = body.getOrDefault("userIds", new ArrayList<>());
+                    return meetupRepository.addInvitedParticipants(id, new LinkedHashSet<>(userIds))
+                            .flatMap(invited -> (invited > 0
+                                    ? meetupRepository.findById(id).defaultIfEmpty(meetup)
+                                    : Mono.just(meetup))
+                                    .flatMap(meetupHydrator::hydrate)
+                                    .map(view -> ResponseEntity.ok(Map.of(
+                                            "message", "Invited " + invited + " users to meetup",
+                                            "meetup", view))));
+                })
+                .defaultIfEmpty(meetupNotFound());
+    }
+
+    @PatchMapping("/{id}/status")
+    public Mono<ResponseEntity<?>> updateStatus(@AuthenticationPrincipal AuthenticatedUser currentUser,
+            @PathVariable String id, @RequestBody Map<String, String> body) {
+        return meetupRepository.updateStatus(id, currentUser.getId(), body.get("status"))
+                .doOnNext(lifecycleScheduler::statusChanged)
+                .flatMap(meetupHydrator::hydrate)
+                .<ResponseEntity<?>>map(view -> ResponseEntity.ok(Map.of(
+                        "message", "Meetup status updated",
+                        "meetup", view)))
+                .switchIfEmpty(Mono.defer(() -> meetupRepository.existsById(id).map(exists -> exists
+                        ? ResponseEntity.status(HttpStatus.FORBIDDEN)
+                                .body(Map.of("message", "Only creator can update meetup status"))
+                        : meetupNotFound())));
+    }
+
+    @DeleteMapping("/{id}/leave")
+    public Mono<ResponseEntity<?>> leaveMeetup(@AuthenticationPrincipal AuthenticatedUser currentUser,
+            @PathVariable String id) {
+        return meetupRepository.removeParticipant(id, currentUser.getId())
+                .flatMap(removed -> removed
+                        ? Mono.just(ResponseEntity.ok(Map.of("message", "Left meetup successfully")))
+                        : meetupRepository.existsById(id).map(exists -> exists
+                                ? ResponseEntity.badRequest()
+                                        .body(Map.of("message", "Creator cannot leave meetup. Delete it instead."))
+                                : meetupNotFound()));
+    }
+
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<?>> deleteMeetup(@AuthenticationPrincipal AuthenticatedUser currentUser,
+            @PathVariable String id) {
+        return meetupRepository.findById(id)
+                .<ResponseEntity<?>>flatMap(meetup -> {
+                    if (!meetup.getCreator().equals(currentUser.getId())) {
+                        return Mono.just(ResponseEntity.status(HttpStatus.FORBIDDEN)
+                                .body(Map.of("message", "Only creator can delete meetup")));
+                    }
+
+                    return meetupRepository.deleteById(id).then(Mono.fromCallable(() -> {
+                        meetupCache.invalidate(id);
+                        lifecycleScheduler.cancel(id);
+                        if (meetup.getInviteCode() != null) {
+                            inviteCodeCache.invalidate(meetup.getInviteCode());
+                        }
+                        return ResponseEntity.ok(Map.of("message", "Meetup deleted successfully"));
+                    }));
+                })
+                .defaultIfEmpty(meetupNotFound());
+    }
+
+    // The allocator may reserve a new block from Mongo, which blocks
+    private Mono<String> nextInviteCode() {
+        return Mono.fromCallable(inviteCodeAllocator::next).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private Mono<Meetup> saveNewMeetup(Meetup meetup, int attempt) {
+        // Allocated codes never repeat, but may still match a code issued before the allocator
+        return meetupRepository.save(meetup)
+                .onErrorResume(DuplicateKeyException.class, e -> {
+                    if (meetup.getInviteCode() == null || attempt >= MAX_INVITE_CODE_ATTEMPTS) {
+                        return Mono.error(e);
+                    }
+                    return nextInviteCode().flatMap(code -> {
+                        meetup.setInviteCode(code);
+                        return saveNewMeetup(meetup, attempt + 1);
+                    });
+                });
+    }
+
+    // An empty result is either a 304 already set by checkNotModified or a missing meetup
+    private static boolean notModified(ServerWebExchange exchange) {
+        return exchange.getResponse().getStatusCode() == HttpStatus.NOT_MODIFIED;
+    }
+
+    private static ResponseEntity<?> meetupNotFound() {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", "Meetup not found"));
+    }
+
+    private static ResponseEntity<?> invalidInviteCode() {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", "Invalid invite code"));
+    }
+
+    private static ResponseEntity<?> accessDenied() {
+        return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("message", "Access denied"));
+    }
+}
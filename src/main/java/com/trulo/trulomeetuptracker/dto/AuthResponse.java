@@ -1,6 +1,5 @@
 package com.trulo.trulomeetuptracker.dto;
 
-import com.trulo.trulomeetuptracker.model.User;
 import lombok.Builder;
 import lombok.Data;
 
@@ -9,5 +8,5 @@ import lombok.Data;
 public class AuthResponse {
     private String message;
     private String token;
-    private User user;
+    private UserView user;
 }
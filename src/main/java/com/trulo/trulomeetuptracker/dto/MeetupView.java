@@ -0,0 +1,31 @@
+package com.trulo.trulomeetuptracker.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.trulo.trulomeetuptracker.model.Meetup;
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+
+// Meetup with creator and participants expanded; built by MeetupHydrator
+@Value
+@Builder
+public class MeetupView {
+    @JsonProperty("_id")
+    String id;
+    String title;
+    String description;
+    Object creator; // UserSummaryView, or the raw user id if the user no longer exists
+    List<ParticipantView> participants;
+    Meetup.Location location;
+    Date scheduledTime;
+    Integer duration;
+    String status;
+    @JsonProperty("isPrivate")
+    boolean privateMeetup; // not "isPrivate", so the getter maps to the same property
+    String inviteCode;
+    Meetup.Settings settings;
+    Instant createdAt;
+}
@@ -0,0 +1,12 @@
+package com.trulo.trulomeetuptracker.dto;
+
+import lombok.Value;
+
+import java.util.Date;
+
+@Value
+public class ParticipantView {
+    Object user; // UserSummaryView, or the raw user id if the user no longer exists
+    String status;
+    Date joinedAt;
+}
@@ -0,0 +1,9 @@
+package com.trulo.trulomeetuptracker.dto;
+
+import lombok.Data;
+
+@Data
+public class UpdateProfileRequest {
+    private String displayName;
+    private String avatar;
+}
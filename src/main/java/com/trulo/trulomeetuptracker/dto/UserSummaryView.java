@@ -0,0 +1,19 @@
+package com.trulo.trulomeetuptracker.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.trulo.trulomeetuptracker.model.User;
+import lombok.Value;
+
+// Creator/participant as embedded in meetup responses
+@Value
+public class UserSummaryView {
+    @JsonProperty("_id")
+    String id;
+    String username;
+    String displayName;
+    String avatar;
+
+    public static UserSummaryView from(User user) {
+        return new UserSummaryView(user.getId(), user.getUsername(), user.getDisplayName(), user.getAvatar());
+    }
+}
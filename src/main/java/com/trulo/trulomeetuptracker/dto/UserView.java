@@ -0,0 +1,33 @@
+package com.trulo.trulomeetuptracker.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.trulo.trulomeetuptracker.model.User;
+import lombok.Value;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+
+// A user as returned to clients; everything except the password hash
+@Value
+public class UserView {
+    @JsonProperty("_id")
+    String id;
+    String username;
+    String email;
+    String displayName;
+    String avatar;
+    @JsonProperty("online")
+    boolean isOnline;
+    Date lastSeen;
+    List<String> friends;
+    List<String> meetups;
+    Instant createdAt;
+    Instant updatedAt;
+
+    public static UserView from(User user) {
+        return new UserView(user.getId(), user.getUsername(), user.getEmail(), user.getDisplayName(),
+                user.getAvatar(), user.isOnline(), user.getLastSeen(), user.getFriends(), user.getMeetups(),
+                user.getCreatedAt(), user.getUpdatedAt());
+    }
+}
@@ -0,0 +1,55 @@
+package com.trulo.trulomeetuptracker.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+// One document per user per meetup per minute, holding that minute's fixes in arrival order
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "location_history")
+@CompoundIndexes({
+        @CompoundIndex(name = "meetup_user_bucket", def = "{'meetupId': 1, 'userId': 1, 'bucket': 1}", unique = true),
+        // Replays read a meetup in (bucket, userId) order straight off this index, without a sort stage
+        @CompoundIndex(name = "meetup_bucket_user", def = "{'meetupId': 1, 'bucket': 1, 'userId': 1}")
+})
+public class LocationHistory {
+
+    @Id
+    @JsonProperty("_id")
+    private String id;
+
+    private String meetupId;
+
+    private String userId;
+
+    // Start of the minute the points belong to
+    private Date bucket;
+
+    @Builder.Default
+    private List<Point> points = new ArrayList<>();
+
+    private int count;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Point {
+        private double latitude;
+        private double longitude;
+        private Date timestamp;
+    }
+}
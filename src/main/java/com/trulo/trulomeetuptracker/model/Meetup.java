@@ -7,6 +7,9 @@ import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
@@ -22,6 +25,13 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 @NoArgsConstructor
 @AllArgsConstructor
 @Document(collection = "meetups")
+// Listing: meetups a user created or participates in, by scheduledTime desc then _id desc.
+// Lifecycle: scheduled/active meetups by scheduledTime, loaded by MeetupLifecycleScheduler at startup.
+@CompoundIndexes({
+        @CompoundIndex(name = "creator_scheduled", def = "{'creator': 1, 'scheduledTime': -1, '_id': -1}"),
+        @CompoundIndex(name = "participant_scheduled", def = "{'participants.user': 1, 'scheduledTime': -1, '_id': -1}"),
+        @CompoundIndex(name = "status_scheduled", def = "{'status': 1, 'scheduledTime': 1}")
+})
 public class Meetup {
 
     @Id
@@ -47,6 +57,9 @@ public class Meetup {
     @Builder.Default
     private String status = "scheduled"; // scheduled, active, completed, cancelled
 
+    // When the meetup last became active; its end is counted from here if it started late
+    private Date startedAt;
+
     @Builder.Default
     private boolean isPrivate = false;
 
@@ -62,6 +75,10 @@ public class Meetup {
     @LastModifiedDate
     private Instant updatedAt;
 
+    // Bumped by every write; part of the ETag of meetup responses
+    @Version
+    private Long version;
+
     // Nested Classes for Sub-Documents
     @Data
     @NoArgsConstructor
@@ -96,5 +113,7 @@ public class Meetup {
         private boolean allowLocationSharing = true;
         private boolean autoStartTracking = false;
         private boolean notifyOnArrival = true;
+        // Live sessions idle for longer are dropped from the meetup; null uses the server default
+        private Integer idleTimeoutSeconds;
     }
 }
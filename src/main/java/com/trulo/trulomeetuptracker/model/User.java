@@ -8,6 +8,7 @@ import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.index.TextIndexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 
@@ -30,13 +31,16 @@ public class User {
     private String id;
 
     @Indexed(unique = true)
+    @TextIndexed
     private String username;
 
     @Indexed(unique = true)
+    @TextIndexed
     private String email;
 
     private String password;
 
+    @TextIndexed
     private String displayName;
 
     private String avatar;
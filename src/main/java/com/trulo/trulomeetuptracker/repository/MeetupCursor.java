@@ -0,0 +1,38 @@
+package com.trulo.trulomeetuptracker.repository;
+
+import lombok.Value;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * Position in the meetup listing (scheduledTime desc, _id desc): the sort key of the last
+ * meetup on the previous page. Sent to clients as an opaque URL-safe string.
+ */
+@Value
+public class MeetupCursor {
+    Date scheduledTime; // null for meetups without a scheduled time, which sort last
+    String id;
+
+    public String encode() {
+        String raw = (scheduledTime != null ? Long.toString(scheduledTime.getTime()) : "") + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** @throws IllegalArgumentException if the value is not a cursor produced by {@link #encode()} */
+    public static MeetupCursor decode(String value) {
+        String raw = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+        int separator = raw.indexOf(':');
+        if (separator < 0 || separator == raw.length() - 1) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        String time = raw.substring(0, separator);
+        try {
+            Date scheduledTime = time.isEmpty() ? null : new Date(Long.parseLong(time));
+            return new MeetupCursor(scheduledTime, raw.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.trulo.trulomeetuptracker.repository;
+
+import com.trulo.trulomeetuptracker.model.Meetup;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Queries and conditional updates behind the custom meetup repository methods, shared by the
+ * blocking and reactive implementations so both apply exactly the same writes.
+ */
+public final class MeetupQueries {
+
+    private MeetupQueries() {
+    }
+
+    public static Query page(String userId, String status, MeetupCursor after, int limit) {
+        // Each branch is served by its own (user, scheduledTime, _id) index and merged in sort order
+        List<Criteria> and = new ArrayList<>();
+        and.add(new Criteria().orOperator(
+                Criteria.where("creator").is(userId),
+                Criteria.where("participants.user").is(userId)));
+
+        if (status != null) {
+            and.add(Criteria.where("status").is(status));
+        }
+
+        if (after != null) {
+            Object afterId = ObjectId.isValid(after.getId()) ? new ObjectId(after.getId()) : after.getId();
+            if (after.getScheduledTime() != null) {
+                and.add(new Criteria().orOperator(
+                        Criteria.where("scheduledTime").lt(after.getScheduledTime()),
+                        Criteria.where("scheduledTime").is(after.getScheduledTime()).and("_id").lt(afterId),
+                        Criteria.where("scheduledTime").is(null)));
+            } else {
+                and.add(Criteria.where("scheduledTime").is(null).and("_id").lt(afterId));
+            }
+        }
+
+        return new Query(new Criteria().andOperator(and))
+                .with(Sort.by(Sort.Direction.DESC, "scheduledTime", "_id"))
+                .limit(limit);
+    }
+
+    public static Query pageValidators(String userId, String status, MeetupCursor after, int limit) {
+        Query query = page(userId, status, after, limit);
+        query.fields().include("scheduledTime").include("version").include("updatedAt");
+        return query;
+    }
+
+    /**
+     * Scheduled or active meetups with a scheduledTime in [from, to), with only what the lifecycle
+     * scheduler needs. Two index ranges on (status, scheduledTime).
+     */
+    public static Query lifecycleCandidates(Date from, Date to) {
+        Query query = new Query(Criteria.where("status").in("scheduled", "active")
+                .and("scheduledTime").gte(from).lt(to));
+        query.fields().include("status").include("scheduledTime").include("startedAt").include("duration")
+                .include("settings.autoStartTracking");
+        return query;
+    }
+
+    /** The meetup, if it is still in {@code status} and scheduled at {@code scheduledTime}. */
+    public static Query inStatus(String meetupId, String status, Date scheduledTime) {
+        return new Query(Criteria.where("_id").is(meetupId).and("status").is(status)
+                .and("scheduledTime").is(scheduledTime));
+    }
+
+    public static Query byId(String meetupId) {
+        return new Query(Criteria.where("_id").is(meetupId));
+    }
+
+    /** The meetup, if the user is a participant who hasn't accepted yet. */
+    public static Query pendingParticipant(String meetupId, String userId) {
+        return new Query(Criteria.where("_id").is(meetupId)
+                .and("participants").elemMatch(Criteria.where("user").is(userId).and("status").ne("accepted")));
+    }
+
+    public static Query acceptedParticipant(String meetupId, String userId) {
+        return new Query(Criteria.where("_id").is(meetupId)
+                .and("participants").elemMatch(Criteria.where("user").is(userId).and("status").is("accepted")));
+    }
+
+    /** The meetup, if the user isn't a participant. */
+    public static Query notParticipant(String meetupId, String userId) {
+        return new Query(Criteria.where("_id").is(meetupId).and("participants.user").ne(userId));
+    }
+
+    /** The meetup, unless the user is its creator. */
+    public static Query notCreatedBy(String meetupId, String userId) {
+        return new Query(Criteria.where("_id").is(meetupId).and("creator").ne(userId));
+    }
+
+    public static Query createdBy(String meetupId, String creatorId) {
+        return new Query(Criteria.where("_id").is(meetupId).and("creator").is(creatorId));
+    }
+
+    /** Apply to a {@link #pendingParticipant} match; an array filter rather than the positional operator. */
+    public static Update acceptParticipant(String userId) {
+        return touch(new Update().set("participants.$[p].status", "accepted")
+                .filterArray(Criteria.where("p.user").is(userId)));
+    }
+
+    public static Update addParticipant(String userId, String status, Date joinedAt) {
+        return touch(new Update().push("participants", new Meetup.Participant(userId, status, joinedAt)));
+    }
+
+    public static Update removeParticipant(String userId) {
+        return touch(new Update().pull("participants", new Document("user", userId)));
+    }
+
+    public static Update setStatus(String status) {
+        Update update = new Update().set("status", status);
+        if ("active".equals(status)) {
+            update.set("startedAt", new Date());
+        }
+        return touch(update);
+    }
+
+    // Every write bumps version and updatedAt, which the meetup ETags are built from
+    private static Update touch(Update update) {
+        return update.set("updatedAt", Instant.now()).inc("version", 1);
+    }
+}
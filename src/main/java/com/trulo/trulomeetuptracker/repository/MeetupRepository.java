@@ -2,16 +2,23 @@ package com.trulo.trulomeetuptracker.repository;
 
 import com.trulo.trulomeetuptracker.model.Meetup;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
-import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface MeetupRepository extends MongoRepository<Meetup, String> {
+public interface MeetupRepository extends MongoRepository<Meetup, String>, MeetupRepositoryCustom {
     Optional<Meetup> findByInviteCode(String inviteCode);
 
-    List<Meetup> findByCreator(String creatorId);
+    // Only what a conditional GET needs: access check and ETag inputs
+    @Query(value = "{ '_id': ?0 }", fields = "{ 'creator': 1, 'participants.user': 1, 'version': 1, 'updatedAt': 1 }")
+    Optional<Meetup> findValidatorById(String id);
 
-    List<Meetup> findByParticipants_User(String userId);
+    @Query(value = "{ 'inviteCode': ?0 }", fields = "{ '_id': 1 }")
+    Optional<Meetup> findIdByInviteCode(String inviteCode);
+
+    // Only the fields cached for live tracking (meetup point and settings)
+    @Query(value = "{ '_id': ?0 }", fields = "{ 'location': 1, 'settings': 1, 'status': 1 }")
+    Optional<Meetup> findTrackingSnapshotById(String id);
 }
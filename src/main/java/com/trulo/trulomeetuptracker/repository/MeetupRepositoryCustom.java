@@ -0,0 +1,47 @@
+package com.trulo.trulomeetuptracker.repository;
+
+import com.trulo.trulomeetuptracker.model.Meetup;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+public interface MeetupRepositoryCustom {
+
+    /**
+     * Meetups the user created or participates in, newest scheduledTime first (ties by _id),
+     * starting after {@code after} (null for the first page).
+     */
+    List<Meetup> findPageForUser(String userId, String status, MeetupCursor after, int limit);
+
+    /** Same page as {@link #findPageForUser}, with only _id, scheduledTime, version and updatedAt. */
+    List<Meetup> findPageValidatorsForUser(String userId, String status, MeetupCursor after, int limit);
+
+    /**
+     * Marks the user as an accepted participant of the meetup, adding them if needed.
+     * @return the updated meetup, or null if there is no such meetup or the user had already accepted
+     */
+    Meetup acceptInvite(String meetupId, String userId);
+
+    /** Adds the users who aren't participants yet as invited. @return how many were added */
+    int addInvitedParticipants(String meetupId, Collection<String> userIds);
+
+    /** @return false if there is no such meetup or the user is its creator */
+    boolean removeParticipant(String meetupId, String userId);
+
+    /** @return the updated meetup, or null if there is no such meetup created by {@code creatorId} */
+    Meetup updateStatus(String meetupId, String creatorId, String status);
+
+    /**
+     * Moves the meetup from status {@code from} to {@code to}, unless its status or scheduledTime
+     * changed since they were read.
+     * @return the updated meetup, or null if it no longer matches
+     */
+    Meetup transitionStatus(String meetupId, String from, String to, Date scheduledTime);
+
+    /**
+     * Atomically advances the named counter by {@code count}, creating it at 0 if needed.
+     * @return the new counter value; the reserved numbers are [value - count, value)
+     */
+    long reserveSequence(String name, int count);
+}
@@ -0,0 +1,101 @@
+package com.trulo.trulomeetuptracker.repository;
+
+import com.trulo.trulomeetuptracker.model.Counter;
+import com.trulo.trulomeetuptracker.model.Meetup;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+// Picked up by Spring Data as the implementation of MeetupRepositoryCustom.
+// Participant changes are single conditional updates, so concurrent requests can't overwrite each other.
+public class MeetupRepositoryImpl implements MeetupRepositoryCustom {
+
+    private static final FindAndModifyOptions RETURN_NEW = FindAndModifyOptions.options().returnNew(true);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public List<Meetup> findPageForUser(String userId, String status, MeetupCursor after, int limit) {
+        return mongoTemplate.find(MeetupQueries.page(userId, status, after, limit), Meetup.class);
+    }
+
+    @Override
+    public List<Meetup> findPageValidatorsForUser(String userId, String status, MeetupCursor after, int limit) {
+        return mongoTemplate.find(MeetupQueries.pageValidators(userId, status, after, limit), Meetup.class);
+    }
+
+    @Override
+    public Meetup acceptInvite(String meetupId, String userId) {
+        // A concurrent invite can add the user between the two updates, so try once more
+        for (int attempt = 0; attempt < 2; attempt++) {
+            // Already a participant with another status: accept in place
+            Meetup meetup = mongoTemplate.findAndModify(MeetupQueries.pendingParticipant(meetupId, userId),
+                    MeetupQueries.acceptParticipant(userId), RETURN_NEW, Meetup.class);
+            if (meetup != null) {
+                return meetup;
+            }
+
+            // Not a participant yet
+            meetup = mongoTemplate.findAndModify(MeetupQueries.notParticipant(meetupId, userId),
+                    MeetupQueries.addParticipant(userId, "accepted", new Date()), RETURN_NEW, Meetup.class);
+            if (meetup != null) {
+                return meetup;
+            }
+
+            if (!mongoTemplate.exists(MeetupQueries.byId(meetupId), Meetup.class)
+                    || mongoTemplate.exists(MeetupQueries.acceptedParticipant(meetupId, userId), Meetup.class)) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public int addInvitedParticipants(String meetupId, Collection<String> userIds) {
+        if (userIds.isEmpty()) {
+            return 0;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Meetup.class);
+        Date now = new Date();
+        for (String userId : userIds) {
+            bulk.updateOne(MeetupQueries.notParticipant(meetupId, userId),
+                    MeetupQueries.addParticipant(userId, "invited", now));
+        }
+        return bulk.execute().getModifiedCount();
+    }
+
+    @Override
+    public boolean removeParticipant(String meetupId, String userId) {
+        return mongoTemplate.updateFirst(MeetupQueries.notCreatedBy(meetupId, userId),
+                MeetupQueries.removeParticipant(userId), Meetup.class).getMatchedCount() > 0;
+    }
+
+    @Override
+    public Meetup updateStatus(String meetupId, String creatorId, String status) {
+        return mongoTemplate.findAndModify(MeetupQueries.createdBy(meetupId, creatorId),
+                MeetupQueries.setStatus(status), RETURN_NEW, Meetup.class);
+    }
+
+    @Override
+    public Meetup transitionStatus(String meetupId, String from, String to, Date scheduledTime) {
+        return mongoTemplate.findAndModify(MeetupQueries.inStatus(meetupId, from, scheduledTime),
+                MeetupQueries.setStatus(to), RETURN_NEW, Meetup.class);
+    }
+
+    @Override
+    public long reserveSequence(String name, int count) {
+        Query query = new Query(Criteria.where("_id").is(name));
+        Counter counter = mongoTemplate.findAndModify(query, new Update().inc("seq", count),
+                FindAndModifyOptions.options().returnNew(true).upsert(true), Counter.class);
+        return counter.getSeq();
+    }
+}
@@ -2,8 +2,11 @@ package com.trulo.trulomeetuptracker.repository;
 
 import com.trulo.trulomeetuptracker.model.User;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -15,4 +18,12 @@ public interface UserRepository extends MongoRepository<User, String> {
     boolean existsByUsername(String username);
 
     boolean existsByEmail(String email);
+
+    // Only the fields kept in the authenticated principal
+    @Query(value = "{ '_id': ?0 }", fields = "{ 'username': 1, 'email': 1, 'displayName': 1, 'avatar': 1 }")
+    Optional<User> findPrincipalById(String id);
+
+    // Only the fields needed to populate creators/participants in meetup responses
+    @Query(value = "{ '_id': { '$in': ?0 } }", fields = "{ 'username': 1, 'displayName': 1, 'avatar': 1 }")
+    List<User> findSummariesByIdIn(Collection<String> ids);
 }
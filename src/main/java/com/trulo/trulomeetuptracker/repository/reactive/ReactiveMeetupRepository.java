@@ -0,0 +1,20 @@
+package com.trulo.trulomeetuptracker.repository.reactive;
+
+import com.trulo.trulomeetuptracker.model.Meetup;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+// Non-blocking counterpart of MeetupRepository for the "reactive" profile
+@Repository
+public interface ReactiveMeetupRepository extends ReactiveMongoRepository<Meetup, String>,
+        ReactiveMeetupRepositoryCustom {
+
+    // Only what a conditional GET needs: access check and ETag inputs
+    @Query(value = "{ '_id': ?0 }", fields = "{ 'creator': 1, 'participants.user': 1, 'version': 1, 'updatedAt': 1 }")
+    Mono<Meetup> findValidatorById(String id);
+
+    @Query(value = "{ 'inviteCode': ?0 }", fields = "{ '_id': 1 }")
+    Mono<Meetup> findIdByInviteCode(String inviteCode);
+}
@@ -0,0 +1,29 @@
+package com.trulo.trulomeetuptracker.repository.reactive;
+
+import com.trulo.trulomeetuptracker.model.Meetup;
+import com.trulo.trulomeetuptracker.repository.MeetupCursor;
+import com.trulo.trulomeetuptracker.repository.MeetupRepositoryCustom;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+/** Same operations as {@link MeetupRepositoryCustom}; empty results stand for its nulls. */
+public interface ReactiveMeetupRepositoryCustom {
+
+    Flux<Meetup> findPageForUser(String userId, String status, MeetupCursor after, int limit);
+
+    Flux<Meetup> findPageValidatorsForUser(String userId, String status, MeetupCursor after, int limit);
+
+    /** @return the updated meetup, or empty if there is no such meetup or the user had already accepted */
+    Mono<Meetup> acceptInvite(String meetupId, String userId);
+
+    /** @return how many users were added */
+    Mono<Integer> addInvitedParticipants(String meetupId, Collection<String> userIds);
+
+    /** @return false if there is no such meetup or the user is its creator */
+    Mono<Boolean> removeParticipant(String meetupId, String userId);
+
+    /** @return the updated meetup, or empty if there is no such meetup created by {@code creatorId} */
+    Mono<Meetup> updateStatus(String meetupId, String creatorId, String status);
+}
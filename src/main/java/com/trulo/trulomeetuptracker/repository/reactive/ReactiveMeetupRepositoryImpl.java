@@ -0,0 +1,82 @@
+package com.trulo.trulomeetuptracker.repository.reactive;
+
+import com.trulo.trulomeetuptracker.model.Meetup;
+import com.trulo.trulomeetuptracker.repository.MeetupCursor;
+import com.trulo.trulomeetuptracker.repository.MeetupQueries;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.Date;
+
+// Picked up by Spring Data as the implementation of ReactiveMeetupRepositoryCustom.
+// Applies the same conditional updates as MeetupRepositoryImpl.
+public class ReactiveMeetupRepositoryImpl implements ReactiveMeetupRepositoryCustom {
+
+    private static final FindAndModifyOptions RETURN_NEW = FindAndModifyOptions.options().returnNew(true);
+
+    @Autowired
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @Override
+    public Flux<Meetup> findPageForUser(String userId, String status, MeetupCursor after, int limit) {
+        return mongoTemplate.find(MeetupQueries.page(userId, status, after, limit), Meetup.class);
+    }
+
+    @Override
+    public Flux<Meetup> findPageValidatorsForUser(String userId, String status, MeetupCursor after, int limit) {
+        return mongoTemplate.find(MeetupQueries.pageValidators(userId, status, after, limit), Meetup.class);
+    }
+
+    @Override
+    public Mono<Meetup> acceptInvite(String meetupId, String userId) {
+        // A concurrent invite can add the user between the two updates, so try once more
+        return tryAcceptInvite(meetupId, userId)
+                .switchIfEmpty(Mono.defer(() -> isPending(meetupId, userId)
+                        .flatMap(pending -> pending ? tryAcceptInvite(meetupId, userId) : Mono.empty())));
+    }
+
+    private Mono<Meetup> tryAcceptInvite(String meetupId, String userId) {
+        // Already a participant with another status: accept in place, otherwise add them
+        return mongoTemplate.findAndModify(MeetupQueries.pendingParticipant(meetupId, userId),
+                        MeetupQueries.acceptParticipant(userId), RETURN_NEW, Meetup.class)
+                .switchIfEmpty(Mono.defer(() -> mongoTemplate.findAndModify(
+                        MeetupQueries.notParticipant(meetupId, userId),
+                        MeetupQueries.addParticipant(userId, "accepted", new Date()), RETURN_NEW, Meetup.class)));
+    }
+
+    // The meetup exists and the user hasn't accepted it yet
+    private Mono<Boolean> isPending(String meetupId, String userId) {
+        return mongoTemplate.exists(MeetupQueries.byId(meetupId), Meetup.class)
+                .flatMap(exists -> exists
+                        ? mongoTemplate.exists(MeetupQueries.acceptedParticipant(meetupId, userId), Meetup.class)
+                                .map(accepted -> !accepted)
+                        : Mono.just(false));
+    }
+
+    @Override
+    public Mono<Integer> addInvitedParticipants(String meetupId, Collection<String> userIds) {
+        // ReactiveMongoTemplate has no bulk operations here, so the updates are issued concurrently instead
+        Date now = new Date();
+        return Flux.fromIterable(userIds)
+                .flatMap(userId -> mongoTemplate.updateFirst(MeetupQueries.notParticipant(meetupId, userId),
+                        MeetupQueries.addParticipant(userId, "invited", now), Meetup.class))
+                .reduce(0, (invited, result) -> invited + (int) result.getModifiedCount());
+    }
+
+    @Override
+    public Mono<Boolean> removeParticipant(String meetupId, String userId) {
+        return mongoTemplate.updateFirst(MeetupQueries.notCreatedBy(meetupId, userId),
+                MeetupQueries.removeParticipant(userId), Meetup.class)
+                .map(result -> result.getMatchedCount() > 0);
+    }
+
+    @Override
+    public Mono<Meetup> updateStatus(String meetupId, String creatorId, String status) {
+        return mongoTemplate.findAndModify(MeetupQueries.createdBy(meetupId, creatorId),
+                MeetupQueries.setStatus(status), RETURN_NEW, Meetup.class);
+    }
+}
@@ -0,0 +1,28 @@
+package com.trulo.trulomeetuptracker.repository.reactive;
+
+import com.trulo.trulomeetuptracker.model.User;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+// Non-blocking counterpart of UserRepository for the "reactive" profile
+@Repository
+public interface ReactiveUserRepository extends ReactiveMongoRepository<User, String> {
+    Mono<User> findByEmail(String email);
+
+    Mono<Boolean> existsByUsername(String username);
+
+    Mono<Boolean> existsByEmail(String email);
+
+    // Only the fields kept in the authenticated principal
+    @Query(value = "{ '_id': ?0 }", fields = "{ 'username': 1, 'email': 1, 'displayName': 1, 'avatar': 1 }")
+    Mono<User> findPrincipalById(String id);
+
+    // Only the fields needed to populate creators/participants in meetup responses
+    @Query(value = "{ '_id': { '$in': ?0 } }", fields = "{ 'username': 1, 'displayName': 1, 'avatar': 1 }")
+    Flux<User> findSummariesByIdIn(Collection<String> ids);
+}
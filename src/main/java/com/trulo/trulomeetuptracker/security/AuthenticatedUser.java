@@ -0,0 +1,22 @@
+package com.trulo.trulomeetuptracker.security;
+
+import com.trulo.trulomeetuptracker.model.User;
+import lombok.Value;
+
+/**
+ * Slim, immutable principal stored in the security context for authenticated requests.
+ * Controllers that need the full user document load it explicitly.
+ */
+@Value
+public class AuthenticatedUser {
+    String id;
+    String username;
+    String email;
+    String displayName;
+    String avatar;
+
+    public static AuthenticatedUser from(User user) {
+        return new AuthenticatedUser(user.getId(), user.getUsername(), user.getEmail(),
+                user.getDisplayName(), user.getAvatar());
+    }
+}
@@ -1,8 +1,7 @@
 package com.trulo.trulomeetuptracker.security;
 
-import com.trulo.trulomeetuptracker.model.User;
-import com.trulo.trulomeetuptracker.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
@@ -18,13 +17,14 @@ import java.util.Collections;
 import java.util.Optional;
 
 @Component
+@Profile("!reactive")
 public class JwtFilter extends OncePerRequestFilter {
 
     @Autowired
     private JwtUtil jwtUtil;
 
     @Autowired
-    private UserRepository userRepository;
+    private PrincipalCache principalCache;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
@@ -32,25 +32,19 @@ public class JwtFilter extends OncePerRequestFilter {
 
         final String authorizationHeader = request.getHeader("Authorization");
 
-        String userId = null;
-        String jwt = null;
+        VerifiedToken token = null;
 
         if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
-            jwt = authorizationHeader.substring(7);
-            try {
-                userId = jwtUtil.extractUserId(jwt);
-            } catch (Exception e) {
-                // Invalid token
-            }
+            token = jwtUtil.verify(authorizationHeader.substring(7)).orElse(null);
         }
 
-        if (userId != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+        if (token != null && SecurityContextHolder.getContext().getAuthentication() == null) {
 
-            Optional<User> userOptional = userRepository.findById(userId);
+            Optional<AuthenticatedUser> userOptional = principalCache.get(token.getUserId());
 
-            if (userOptional.isPresent() && jwtUtil.validateToken(jwt)) {
-                User user = userOptional.get();
-                // Pass the User entity as the Principal so controllers can access it
+            if (userOptional.isPresent()) {
+                AuthenticatedUser user = userOptional.get();
+                // Pass the cached principal so controllers can access the current user
                 UsernamePasswordAuthenticationToken usernamePasswordAuthenticationToken = new UsernamePasswordAuthenticationToken(
                         user, null, Collections.emptyList());
                 usernamePasswordAuthenticationToken
@@ -1,17 +1,30 @@
 package com.trulo.trulomeetuptracker.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 @Component
@@ -23,11 +36,107 @@ public class JwtUtil {
     @Value("${jwt.expiration}")
     private long expirationTime;
 
+    @Value("${jwt.cache.max-size:10000}")
+    private long cacheMaxSize;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     private Key key;
 
+    // Parsers are immutable and thread-safe once built
+    private JwtParser parser;
+
+    // SHA-256 digest of the token -> verified claims, evicted at the token's own expiry
+    private Cache<String, VerifiedToken> verifiedTokens;
+
+    // trulo.jwt.verify by result: cached, parsed (signature checked) or rejected
+    private Timer cachedVerifyTimer;
+    private Timer parsedVerifyTimer;
+    private Timer rejectedVerifyTimer;
+
     @PostConstruct
     public void init() {
+        this.cachedVerifyTimer = verifyTimer("cached");
+        this.parsedVerifyTimer = verifyTimer("parsed");
+        this.rejectedVerifyTimer = verifyTimer("rejected");
         this.key = Keys.hmacShaKeyFor(secret.getBytes());
+        this.parser = Jwts.parserBuilder().setSigningKey(key).build();
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfter(new Expiry<String, VerifiedToken>() {
+                    @Override
+                    public long expireAfterCreate(String digest, VerifiedToken token, long currentTime) {
+                        long remaining = token.getExpiresAt() - System.currentTimeMillis();
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remaining));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String digest, VerifiedToken token, long currentTime,
+                            long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String digest, VerifiedToken token, long currentTime,
+                            long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    private Timer verifyTimer(String result) {
+        return Timer.builder("trulo.jwt.verify")
+                .description("JWT verification, including the verified-token cache lookup")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Verifies signature and expiry with a single parse, reusing earlier results for the same token.
+     * Returns empty for malformed, tampered or expired tokens.
+     */
+    public Optional<VerifiedToken> verify(String token) {
+        if (token == null || token.isEmpty()) {
+            return Optional.empty();
+        }
+
+        long start = System.nanoTime();
+        long now = System.currentTimeMillis();
+        String digest = digest(token);
+
+        VerifiedToken cached = verifiedTokens.getIfPresent(digest);
+        if (cached != null) {
+            cachedVerifyTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return cached.isExpired(now) ? Optional.empty() : Optional.of(cached);
+        }
+
+        VerifiedToken verified = parse(token, now);
+        if (verified == null) {
+            rejectedVerifyTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return Optional.empty();
+        }
+        verifiedTokens.put(digest, verified);
+        parsedVerifyTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return Optional.of(verified);
+    }
+
+    /** @return null if the token is malformed, tampered or expired */
+    private VerifiedToken parse(String token, long now) {
+        VerifiedToken verified;
+        try {
+            Claims claims = extractAllClaims(token);
+            String userId = claims.get("userId", String.class);
+            Date expiration = claims.getExpiration();
+            if (userId == null || expiration == null) {
+                return null;
+            }
+            verified = new VerifiedToken(userId, expiration.getTime());
+        } catch (Exception e) {
+            return null;
+        }
+        return verified.isExpired(now) ? null : verified;
     }
 
     public String extractUserId(String token) {
@@ -44,11 +153,7 @@ public class JwtUtil {
     }
 
     private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token).getBody();
-    }
-
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+        return parser.parseClaimsJws(token).getBody();
     }
 
     public String generateToken(String userId) {
@@ -68,10 +173,16 @@ public class JwtUtil {
     }
 
     public Boolean validateToken(String token) {
+        return verify(token).isPresent();
+    }
+
+    private static String digest(String token) {
         try {
-            return !isTokenExpired(token);
-        } catch (Exception e) {
-            return false;
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            byte[] hash = sha256.digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
         }
     }
 }
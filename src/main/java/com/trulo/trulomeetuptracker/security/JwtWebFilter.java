@@ -0,0 +1,61 @@
+package com.trulo.trulomeetuptracker.security;
+
+import com.trulo.trulomeetuptracker.repository.reactive.ReactiveUserRepository;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.Collections;
+
+/**
+ * Reactive counterpart of {@link JwtFilter}. Not a component: WebFlux would apply every WebFilter
+ * bean to all requests, so ReactiveSecurityConfig adds it to the security chain instead.
+ */
+public class JwtWebFilter implements WebFilter {
+
+    private final JwtUtil jwtUtil;
+    private final PrincipalCache principalCache;
+    private final ReactiveUserRepository userRepository;
+
+    public JwtWebFilter(JwtUtil jwtUtil, PrincipalCache principalCache, ReactiveUserRepository userRepository) {
+        this.jwtUtil = jwtUtil;
+        this.principalCache = principalCache;
+        this.userRepository = userRepository;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String authorizationHeader = exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+
+        VerifiedToken token = null;
+        if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
+            token = jwtUtil.verify(authorizationHeader.substring(7)).orElse(null);
+        }
+
+        if (token == null) {
+            return chain.filter(exchange);
+        }
+
+        return principal(token.getUserId())
+                .map(user -> new UsernamePasswordAuthenticationToken(user, null, Collections.emptyList()))
+                .map(authentication -> chain.filter(exchange)
+                        .contextWrite(ReactiveSecurityContextHolder.withAuthentication(authentication)))
+                .defaultIfEmpty(chain.filter(exchange))
+                .flatMap(filtered -> filtered);
+    }
+
+    // Cached principal, or a projection query whose result is cached like PrincipalCache.get does
+    private Mono<AuthenticatedUser> principal(String userId) {
+        AuthenticatedUser cached = principalCache.getIfPresent(userId);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        return userRepository.findPrincipalById(userId)
+                .map(AuthenticatedUser::from)
+                .doOnNext(principalCache::put);
+    }
+}
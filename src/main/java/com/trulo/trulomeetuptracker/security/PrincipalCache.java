@@ -0,0 +1,90 @@
+package com.trulo.trulomeetuptracker.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.trulo.trulomeetuptracker.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded, TTL-evicting cache of authenticated principals keyed by userId.
+ * Writes to a user document must call {@link #invalidate(String)}.
+ */
+@Component
+public class PrincipalCache {
+
+    @Value("${security.principal-cache.max-size:10000}")
+    private long maxSize;
+
+    @Value("${security.principal-cache.ttl:300000}")
+    private long ttl;
+
+    @Value("${security.principal-cache.load-threads:4}")
+    private int loadThreads;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private Cache<String, AuthenticatedUser> cache;
+
+    // Runs lookups for callers that must not block, such as Netty I/O threads
+    private ExecutorService loadExecutor;
+
+    @PostConstruct
+    public void init() {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(ttl))
+                .build();
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.loadExecutor = Executors.newFixedThreadPool(loadThreads, r -> {
+            Thread t = new Thread(r, "principal-loader-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        loadExecutor.shutdownNow();
+    }
+
+    public Optional<AuthenticatedUser> get(String userId) {
+        // Missing users are not cached, so a later registration is picked up immediately
+        return Optional.ofNullable(cache.get(userId, id -> userRepository.findPrincipalById(id)
+                .map(AuthenticatedUser::from)
+                .orElse(null)));
+    }
+
+    public AuthenticatedUser getIfPresent(String userId) {
+        return cache.getIfPresent(userId);
+    }
+
+    public CompletableFuture<Optional<AuthenticatedUser>> getAsync(String userId) {
+        AuthenticatedUser cached = cache.getIfPresent(userId);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(Optional.of(cached));
+        }
+        return CompletableFuture.supplyAsync(() -> get(userId), loadExecutor);
+    }
+
+    /** For callers that loaded the principal themselves, such as the reactive filter. */
+    public void put(AuthenticatedUser user) {
+        cache.put(user.getId(), user);
+    }
+
+    public void invalidate(String userId) {
+        cache.invalidate(userId);
+    }
+}
@@ -0,0 +1,16 @@
+package com.trulo.trulomeetuptracker.security;
+
+import lombok.Value;
+
+/**
+ * Result of a successful signature and expiry check on a JWT.
+ */
+@Value
+public class VerifiedToken {
+    String userId;
+    long expiresAt; // epoch millis
+
+    public boolean isExpired(long now) {
+        return expiresAt <= now;
+    }
+}
@@ -0,0 +1,115 @@
+package com.trulo.trulomeetuptracker.service;
+
+import com.trulo.trulomeetuptracker.repository.MeetupRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Issues 6-character invite codes that never repeat.
+ *
+ * Codes are a keyed permutation of a counter: each sequence number in [0, 36^6) is run
+ * through a 4-round Feistel network over 32 bits, cycle-walking until the result falls back
+ * into the code space, and then written in base 36. Distinct numbers therefore give distinct
+ * codes, and consecutive numbers give unrelated-looking codes.
+ *
+ * Sequence numbers are reserved from the {@code counters} collection in blocks, so only one
+ * in {@code meetup.invite-code.block-size} allocations touches MongoDB. Numbers left in a
+ * block when the process stops are skipped, not reused.
+ */
+@Component
+public class InviteCodeAllocator {
+
+    static final String COUNTER = "inviteCode";
+    private static final String ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+    private static final int LENGTH = 6;
+    private static final long SPACE = 2_176_782_336L; // 36^6
+    private static final int ROUNDS = 4;
+
+    @Value("${meetup.invite-code.key}")
+    private String key;
+
+    @Value("${meetup.invite-code.block-size:1000}")
+    private int blockSize;
+
+    @Autowired
+    private MeetupRepository meetupRepository;
+
+    private final int[] roundKeys = new int[ROUNDS];
+
+    // Guarded by this
+    private long next;
+    private long blockEnd;
+
+    @PostConstruct
+    public void init() {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            ByteBuffer buffer = ByteBuffer.wrap(digest);
+            for (int i = 0; i < ROUNDS; i++) {
+                roundKeys[i] = buffer.getInt();
+            }
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public String next() {
+        return encode(permute(nextSequence()));
+    }
+
+    private synchronized long nextSequence() {
+        if (next >= blockEnd) {
+            blockEnd = meetupRepository.reserveSequence(COUNTER, blockSize);
+            next = blockEnd - blockSize;
+        }
+        if (next >= SPACE) {
+            throw new IllegalStateException("Invite code space exhausted");
+        }
+        return next++;
+    }
+
+    long permute(long value) {
+        long x = value;
+        do {
+            x = feistel(x);
+        } while (x >= SPACE);
+        return x;
+    }
+
+    private long feistel(long value) {
+        int left = (int) (value >>> 16) & 0xFFFF;
+        int right = (int) value & 0xFFFF;
+        for (int i = 0; i < ROUNDS; i++) {
+            int mixed = left ^ (round(right, roundKeys[i]) & 0xFFFF);
+            left = right;
+            right = mixed;
+        }
+        return ((long) left << 16) | right;
+    }
+
+    private static int round(int half, int roundKey) {
+        int x = (half * 0x9E3779B1) ^ roundKey;
+        x ^= x >>> 15;
+        x *= 0x2C1B3C6D;
+        x ^= x >>> 12;
+        x *= 0x297A2D39;
+        x ^= x >>> 15;
+        return x;
+    }
+
+    private static String encode(long value) {
+        char[] chars = new char[LENGTH];
+        for (int i = LENGTH - 1; i >= 0; i--) {
+            chars[i] = ALPHABET.charAt((int) (value % ALPHABET.length()));
+            value /= ALPHABET.length();
+        }
+        return new String(chars);
+    }
+}
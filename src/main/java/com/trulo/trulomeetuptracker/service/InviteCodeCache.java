@@ -0,0 +1,58 @@
+package com.trulo.trulomeetuptracker.service;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.trulo.trulomeetuptracker.model.Meetup;
+import com.trulo.trulomeetuptracker.repository.MeetupRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Bounded inviteCode -> meetupId cache for the join-link path. Invite codes never change, so
+ * entries only go stale when a meetup is deleted; callers treat a cached id whose meetup is
+ * gone as a miss and {@link #invalidate(String)} it. Unknown codes are not cached.
+ */
+@Component
+public class InviteCodeCache {
+
+    @Value("${meetup.invite-code.cache.max-size:10000}")
+    private long maxSize;
+
+    @Value("${meetup.invite-code.cache.ttl:3600000}")
+    private long ttl;
+
+    @Autowired
+    private MeetupRepository meetupRepository;
+
+    private LoadingCache<String, String> meetupIds;
+
+    @PostConstruct
+    public void init() {
+        this.meetupIds = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterAccess(Duration.ofMillis(ttl))
+                .build(code -> meetupRepository.findIdByInviteCode(code).map(Meetup::getId).orElse(null));
+    }
+
+    public Optional<String> meetupId(String inviteCode) {
+        return Optional.ofNullable(meetupIds.get(inviteCode));
+    }
+
+    /** Cached lookups only, for callers that load misses themselves. */
+    public String getIfPresent(String inviteCode) {
+        return meetupIds.getIfPresent(inviteCode);
+    }
+
+    public void put(String inviteCode, String meetupId) {
+        meetupIds.put(inviteCode, meetupId);
+    }
+
+    public void invalidate(String inviteCode) {
+        meetupIds.invalidate(inviteCode);
+    }
+}
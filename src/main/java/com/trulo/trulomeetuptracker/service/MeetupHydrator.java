@@ -0,0 +1,96 @@
+package com.trulo.trulomeetuptracker.service;
+
+import com.trulo.trulomeetuptracker.dto.MeetupView;
+import com.trulo.trulomeetuptracker.dto.ParticipantView;
+import com.trulo.trulomeetuptracker.dto.UserSummaryView;
+import com.trulo.trulomeetuptracker.model.Meetup;
+import com.trulo.trulomeetuptracker.model.User;
+import com.trulo.trulomeetuptracker.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Builds the populated meetup responses (creator and participants expanded to user summaries).
+ * Views are immutable typed beans, so Jackson serializes them with cached bean serializers.
+ * All users referenced by a batch of meetups are loaded with a single query.
+ */
+@Component
+public class MeetupHydrator {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    public MeetupView hydrate(Meetup meetup) {
+        return hydrate(Collections.singletonList(meetup)).get(0);
+    }
+
+    public List<MeetupView> hydrate(List<Meetup> meetups) {
+        Map<String, User> users = loadUsers(meetups);
+
+        List<MeetupView> populated = new ArrayList<>(meetups.size());
+        for (Meetup meetup : meetups) {
+            populated.add(populate(meetup, users));
+        }
+        return populated;
+    }
+
+    private Map<String, User> loadUsers(List<Meetup> meetups) {
+        Set<String> userIds = userIds(meetups);
+        if (userIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        Map<String, User> users = new HashMap<>();
+        for (User user : userRepository.findSummariesByIdIn(userIds)) {
+            users.put(user.getId(), user);
+        }
+        return users;
+    }
+
+    // Creators and participants referenced by the batch
+    static Set<String> userIds(List<Meetup> meetups) {
+        Set<String> userIds = new HashSet<>();
+        for (Meetup meetup : meetups) {
+            if (meetup.getCreator() != null) {
+                userIds.add(meetup.getCreator());
+            }
+            for (Meetup.Participant p : meetup.getParticipants()) {
+                if (p.getUser() != null) {
+                    userIds.add(p.getUser());
+                }
+            }
+        }
+        return userIds;
+    }
+
+    static MeetupView populate(Meetup meetup, Map<String, User> users) {
+        List<ParticipantView> participants = new ArrayList<>(meetup.getParticipants().size());
+        for (Meetup.Participant p : meetup.getParticipants()) {
+            participants.add(new ParticipantView(summarize(p.getUser(), users), p.getStatus(), p.getJoinedAt()));
+        }
+
+        return MeetupView.builder()
+                .id(meetup.getId())
+                .title(meetup.getTitle())
+                .description(meetup.getDescription())
+                .creator(summarize(meetup.getCreator(), users))
+                .participants(participants)
+                .location(meetup.getLocation())
+                .scheduledTime(meetup.getScheduledTime())
+                .duration(meetup.getDuration())
+                .status(meetup.getStatus())
+                .privateMeetup(meetup.isPrivate())
+                .inviteCode(meetup.getInviteCode())
+                .settings(meetup.getSettings())
+                .createdAt(meetup.getCreatedAt())
+                .build();
+    }
+
+    // Falls back to the raw id when the user no longer exists
+    private static Object summarize(String userId, Map<String, User> users) {
+        User user = userId != null ? users.get(userId) : null;
+        return user != null ? UserSummaryView.from(user) : userId;
+    }
+}
@@ -0,0 +1,340 @@
+package com.trulo.trulomeetuptracker.service;
+
+import com.trulo.trulomeetuptracker.model.Meetup;
+import com.trulo.trulomeetuptracker.repository.MeetupQueries;
+import com.trulo.trulomeetuptracker.repository.MeetupRepository;
+import com.trulo.trulomeetuptracker.socket.RoomBroadcaster;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Moves meetups through their lifecycle on time: scheduled -> active at scheduledTime when
+ * settings.autoStartTracking is on, and active -> completed once duration has passed since
+ * scheduledTime, or since startedAt if the meetup was started late.
+ *
+ * Upcoming deadlines wait in a {@link DelayQueue} and are kept current by the controllers on
+ * create, status change and delete, so the meetups collection is never polled. It is filled by
+ * indexed (status, scheduledTime) range queries, one window at a time: at startup from
+ * {@code lookback-ms} ago to {@code horizon-ms} ahead, then one more horizon, half a horizon
+ * before the current window runs out. A rescheduled or deleted meetup's deadlines are taken
+ * out of the queue. Transitions are conditional on the expected status and scheduledTime, so a
+ * manual status change always wins and running this on several nodes only costs a no-op update.
+ */
+@Component
+public class MeetupLifecycleScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(MeetupLifecycleScheduler.class);
+
+    // Meetup.duration default, for documents saved without one
+    private static final int DEFAULT_DURATION_MINUTES = 120;
+
+    @Value("${meetup.lifecycle.enabled:true}")
+    private boolean enabled;
+
+    @Value("${meetup.lifecycle.lookback-ms:604800000}")
+    private long lookbackMs;
+
+    @Value("${meetup.lifecycle.horizon-ms:86400000}")
+    private long horizonMs;
+
+    @Value("${meetup.lifecycle.retry-ms:10000}")
+    private long retryMs;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MeetupRepository meetupRepository;
+
+    @Autowired
+    private RoomBroadcaster roomBroadcaster;
+
+    private final DelayQueue<Deadline> deadlines = new DelayQueue<>();
+    // Map: meetupId -> its deadlines in the queue
+    private final Map<String, Schedule> schedules = new ConcurrentHashMap<>();
+
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    private volatile boolean running;
+    private Thread worker;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        worker = new Thread(this::run, "meetup-lifecycle");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+            worker.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        deadlines.add(Deadline.load(now - lookbackMs, now + horizonMs, now));
+    }
+
+    /** Called after a meetup is created; replaces any deadlines it already had. */
+    public void schedule(Meetup meetup) {
+        if (!enabled) {
+            return;
+        }
+        String meetupId = meetup.getId();
+        Date scheduledTime = meetup.getScheduledTime();
+        boolean active = "active".equals(meetup.getStatus());
+        boolean autoStart = "scheduled".equals(meetup.getStatus())
+                && meetup.getSettings() != null && meetup.getSettings().isAutoStartTracking();
+        if (scheduledTime == null || !(autoStart || active)) {
+            cancel(meetupId);
+            return;
+        }
+
+        long startAt = scheduledTime.getTime();
+        // A late start gets its full duration
+        long endFrom = active && meetup.getStartedAt() != null
+                ? Math.max(startAt, meetup.getStartedAt().getTime())
+                : startAt;
+        int duration = meetup.getDuration() != null ? meetup.getDuration() : DEFAULT_DURATION_MINUTES;
+
+        Schedule next = new Schedule(
+                autoStart ? new Deadline(meetupId, Transition.START, scheduledTime, startAt) : null,
+                new Deadline(meetupId, Transition.END, scheduledTime, endFrom + TimeUnit.MINUTES.toMillis(duration)));
+        // compute() keeps the queue and the map in step with concurrent reschedules
+        schedules.compute(meetupId, (k, previous) -> {
+            if (previous != null) {
+                previous.removeFrom(deadlines);
+            }
+            next.addTo(deadlines);
+            return next;
+        });
+    }
+
+    /** Called after a creator changes the status: reschedules and tells the room. */
+    public void statusChanged(Meetup meetup) {
+        schedule(meetup);
+        notifyRoom(meetup, null);
+    }
+
+    /** Called after a meetup is deleted. */
+    public void cancel(String meetupId) {
+        schedules.computeIfPresent(meetupId, (k, previous) -> {
+            previous.removeFrom(deadlines);
+            return null;
+        });
+    }
+
+    private void run() {
+        while (running) {
+            Deadline deadline;
+            try {
+                deadline = deadlines.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            if (deadline.transition != Transition.LOAD) {
+                Schedule schedule = schedules.get(deadline.meetupId);
+                // Replaced while it was being taken off the queue
+                if (schedule == null || !schedule.contains(deadline)) {
+                    skipped.incrementAndGet();
+                    continue;
+                }
+            }
+
+            try {
+                fire(deadline);
+            } catch (RuntimeException e) {
+                failed.incrementAndGet();
+                log.warn("Meetup lifecycle {} failed for {}, retrying in {} ms", deadline.transition,
+                        deadline.meetupId, retryMs, e);
+                // Same object, so it stays the meetup's current deadline
+                deadline.dueAt = System.currentTimeMillis() + retryMs;
+                deadlines.add(deadline);
+            }
+        }
+    }
+
+    private void fire(Deadline deadline) {
+        Transition transition = deadline.transition;
+        if (transition == Transition.LOAD) {
+            loadWindow(deadline.windowFrom, deadline.windowTo);
+            return;
+        }
+
+        Meetup meetup = meetupRepository.transitionStatus(deadline.meetupId, transition.from, transition.to,
+                deadline.scheduledTime);
+        if (transition == Transition.END) {
+            schedules.computeIfPresent(deadline.meetupId, (k, schedule) -> schedule.end == deadline ? null : schedule);
+        }
+        if (meetup == null) {
+            // Changed or deleted since it was scheduled
+            skipped.incrementAndGet();
+            return;
+        }
+
+        (transition == Transition.START ? started : completed).incrementAndGet();
+        notifyRoom(meetup, transition.from);
+    }
+
+    private void loadWindow(long from, long to) {
+        int loaded = 0;
+        try (CloseableIterator<Meetup> meetups = mongoTemplate.stream(
+                MeetupQueries.lifecycleCandidates(new Date(from), new Date(to)), Meetup.class)) {
+            while (meetups.hasNext()) {
+                schedule(meetups.next());
+                loaded++;
+            }
+        }
+        // Load the next window half a horizon before it starts
+        deadlines.add(Deadline.load(to, to + horizonMs, to - horizonMs / 2));
+        log.info("Meetup lifecycle scheduler loaded {} meetups scheduled before {}", loaded, new Date(to));
+    }
+
+    private void notifyRoom(Meetup meetup, String previousStatus) {
+        Map<String, Object> notification = new HashMap<>();
+        notification.put("meetupId", meetup.getId());
+        notification.put("status", meetup.getStatus());
+        if (previousStatus != null) {
+            notification.put("previousStatus", previousStatus);
+        }
+        notification.put("timestamp", new Date());
+        roomBroadcaster.broadcast("meetup_" + meetup.getId(), "meetup_status_changed", notification);
+    }
+
+    /** Meetups with a start or end deadline in the queue. */
+    public int getPending() {
+        return schedules.size();
+    }
+
+    public long getStarted() {
+        return started.get();
+    }
+
+    public long getCompleted() {
+        return completed.get();
+    }
+
+    public long getSkipped() {
+        return skipped.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    private enum Transition {
+        START("scheduled", "active"),
+        END("active", "completed"),
+        // Not a transition: loads the next window of meetups
+        LOAD(null, null);
+
+        final String from;
+        final String to;
+
+        Transition(String from, String to) {
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    private static final class Schedule {
+        final Deadline start;
+        final Deadline end;
+
+        Schedule(Deadline start, Deadline end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        boolean contains(Deadline deadline) {
+            return deadline == start || deadline == end;
+        }
+
+        void addTo(DelayQueue<Deadline> deadlines) {
+            if (start != null) {
+                deadlines.add(start);
+            }
+            deadlines.add(end);
+        }
+
+        void removeFrom(DelayQueue<Deadline> deadlines) {
+            if (start != null) {
+                deadlines.remove(start);
+            }
+            deadlines.remove(end);
+        }
+    }
+
+    private static final class Deadline implements Delayed {
+        final String meetupId;
+        final Transition transition;
+        final Date scheduledTime;
+        // LOAD only: meetups scheduled in [windowFrom, windowTo)
+        final long windowFrom;
+        final long windowTo;
+        // Only changed while the deadline is out of the queue, for a retry
+        volatile long dueAt;
+
+        Deadline(String meetupId, Transition transition, Date scheduledTime, long dueAt) {
+            this(meetupId, transition, scheduledTime, 0, 0, dueAt);
+        }
+
+        private Deadline(String meetupId, Transition transition, Date scheduledTime, long windowFrom, long windowTo,
+                long dueAt) {
+            this.meetupId = meetupId;
+            this.transition = transition;
+            this.scheduledTime = scheduledTime;
+            this.windowFrom = windowFrom;
+            this.windowTo = windowTo;
+            this.dueAt = dueAt;
+        }
+
+        static Deadline load(long windowFrom, long windowTo, long dueAt) {
+            return new Deadline(null, Transition.LOAD, null, windowFrom, windowTo, dueAt);
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueAt - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(dueAt, ((Deadline) other).dueAt);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.trulo.trulomeetuptracker.service;
+
+import com.trulo.trulomeetuptracker.dto.MeetupView;
+import com.trulo.trulomeetuptracker.model.Meetup;
+import com.trulo.trulomeetuptracker.model.User;
+import com.trulo.trulomeetuptracker.repository.reactive.ReactiveUserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Non-blocking {@link MeetupHydrator}. The referenced users are split into chunks that are
+ * loaded concurrently, so a page with many participants isn't one large {@code $in} query.
+ */
+@Component
+@Profile("reactive")
+public class ReactiveMeetupHydrator {
+
+    @Value("${meetup.hydration.chunk-size:100}")
+    private int chunkSize;
+
+    @Value("${meetup.hydration.concurrency:4}")
+    private int concurrency;
+
+    @Autowired
+    private ReactiveUserRepository userRepository;
+
+    public Mono<MeetupView> hydrate(Meetup meetup) {
+        return hydrate(Collections.singletonList(meetup)).map(views -> views.get(0));
+    }
+
+    public Mono<List<MeetupView>> hydrate(List<Meetup> meetups) {
+        return loadUsers(meetups).map(users -> {
+            List<MeetupView> populated = new ArrayList<>(meetups.size());
+            for (Meetup meetup : meetups) {
+                populated.add(MeetupHydrator.populate(meetup, users));
+            }
+            return populated;
+        });
+    }
+
+    private Mono<Map<String, User>> loadUsers(List<Meetup> meetups) {
+        Set<String> userIds = MeetupHydrator.userIds(meetups);
+        if (userIds.isEmpty()) {
+            return Mono.just(Collections.emptyMap());
+        }
+
+        return Flux.fromIterable(userIds)
+                .buffer(chunkSize)
+                .flatMap(userRepository::findSummariesByIdIn, concurrency)
+                .collectMap(User::getId);
+    }
+}
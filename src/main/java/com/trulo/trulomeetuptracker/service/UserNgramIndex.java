@@ -0,0 +1,302 @@
+package com.trulo.trulomeetuptracker.service;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Substring index over username, displayName and email (case-insensitive).
+ *
+ * Every field contributes its bigrams and trigrams to posting lists of dense document
+ * numbers. A 2-character query is answered by one bigram posting list; longer queries
+ * intersect the posting lists of their trigrams and verify the survivors with
+ * {@code contains}, so results match a full scan exactly. Intersection walks the shortest
+ * list in place and probes the others, so nothing is copied under the read lock. A query
+ * whose shortest list is longer than {@code maxCandidates} checks only that many candidates,
+ * or stops sooner once it has {@code limit} username prefixes: every result still contains
+ * the query, but the ranking covers the candidates checked rather than all users.
+ *
+ * Posting lists are sorted int arrays and grams are packed into longs, which keeps the
+ * footprint to a few hundred bytes per user.
+ */
+public class UserNgramIndex {
+
+    private static final long BIGRAM_TAG = 1L << 48;
+
+    public static final int DEFAULT_MAX_CANDIDATES = 10000;
+
+    private final int maxCandidates;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // All state below is guarded by lock
+    private final Map<String, Integer> docIds = new HashMap<>();
+    private final List<Doc> docs = new ArrayList<>();
+    private final Map<Long, Postings> postings = new HashMap<>();
+
+    public UserNgramIndex() {
+        this(DEFAULT_MAX_CANDIDATES);
+    }
+
+    public UserNgramIndex(int maxCandidates) {
+        this.maxCandidates = maxCandidates;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docIds.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean contains(String userId) {
+        lock.readLock().lock();
+        try {
+            return docIds.containsKey(userId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Adds the user or replaces their indexed fields. */
+    public void put(String userId, String username, String displayName, String email) {
+        Doc doc = new Doc(userId, normalize(username), normalize(displayName), normalize(email));
+
+        lock.writeLock().lock();
+        try {
+            Integer docId = docIds.get(userId);
+            if (docId == null) {
+                docId = docs.size();
+                docIds.put(userId, docId);
+                docs.add(doc);
+            } else {
+                for (long gram : docs.get(docId).grams()) {
+                    Postings list = postings.get(gram);
+                    if (list != null && list.remove(docId) && list.size == 0) {
+                        postings.remove(gram);
+                    }
+                }
+                docs.set(docId, doc);
+            }
+            for (long gram : doc.grams()) {
+                postings.computeIfAbsent(gram, k -> new Postings()).add(docId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Users whose username, displayName or email contains {@code query}, best first: exact
+     * username, username prefix, displayName prefix, email prefix, then any other match.
+     * Ranked among the first {@code maxCandidates} candidates when the query is broader.
+     */
+    public List<String> search(String query, String excludeUserId, int limit) {
+        String q = normalize(query);
+        if (q == null || q.length() < 2 || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        lock.readLock().lock();
+        try {
+            Postings[] lists = postingLists(q);
+            if (lists == null) {
+                return Collections.emptyList();
+            }
+            Postings shortest = lists[0];
+            boolean broad = shortest.size > maxCandidates;
+
+            // Max-heap on rank holding the best `limit` so far
+            PriorityQueue<Match> best = new PriorityQueue<>(Comparator.<Match>naturalOrder().reversed());
+            // Candidates ascend, so each other list is only ever searched forward from here
+            int[] cursors = new int[lists.length];
+            candidates:
+            for (int i = 0; i < shortest.size; i++) {
+                // Bounded work for broad queries; only an exact username beats a page of prefixes
+                if (broad && (i == maxCandidates || (best.size() == limit && best.peek().rank <= 1))) {
+                    break;
+                }
+                int docId = shortest.ids[i];
+                for (int l = 1; l < lists.length; l++) {
+                    cursors[l] = lists[l].seek(docId, cursors[l]);
+                    if (!lists[l].has(cursors[l], docId)) {
+                        continue candidates;
+                    }
+                }
+
+                Doc doc = docs.get(docId);
+                if (doc.userId.equals(excludeUserId)) {
+                    continue;
+                }
+                int rank = doc.rank(q);
+                if (rank < 0) {
+                    continue;
+                }
+                Match match = new Match(rank, doc);
+                if (best.size() < limit) {
+                    best.add(match);
+                } else if (match.compareTo(best.peek()) < 0) {
+                    best.poll();
+                    best.add(match);
+                }
+            }
+
+            List<Match> ordered = new ArrayList<>(best);
+            Collections.sort(ordered);
+            List<String> result = new ArrayList<>(ordered.size());
+            for (Match match : ordered) {
+                result.add(match.doc.userId);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** The query's posting lists, shortest first, or null if one of its grams has none. */
+    private Postings[] postingLists(String q) {
+        if (q.length() == 2) {
+            Postings list = postings.get(bigram(q, 0));
+            return list != null ? new Postings[] {list} : null;
+        }
+
+        Postings[] lists = new Postings[q.length() - 2];
+        for (int i = 0; i < lists.length; i++) {
+            lists[i] = postings.get(trigram(q, i));
+            if (lists[i] == null) {
+                return null;
+            }
+        }
+        Arrays.sort(lists, Comparator.comparingInt(list -> list.size));
+        return lists;
+    }
+
+    static String normalize(String value) {
+        return value != null ? value.toLowerCase(Locale.ROOT) : null;
+    }
+
+    private static long bigram(String s, int i) {
+        return BIGRAM_TAG | ((long) s.charAt(i) << 16) | s.charAt(i + 1);
+    }
+
+    private static long trigram(String s, int i) {
+        return ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+    }
+
+    private static final class Doc {
+        private final String userId;
+        private final String username;
+        private final String displayName;
+        private final String email;
+
+        Doc(String userId, String username, String displayName, String email) {
+            this.userId = userId;
+            this.username = username;
+            this.displayName = displayName;
+            this.email = email;
+        }
+
+        Set<Long> grams() {
+            Set<Long> grams = new HashSet<>();
+            addGrams(username, grams);
+            addGrams(displayName, grams);
+            addGrams(email, grams);
+            return grams;
+        }
+
+        private static void addGrams(String field, Set<Long> grams) {
+            if (field == null) {
+                return;
+            }
+            for (int i = 0; i + 2 <= field.length(); i++) {
+                grams.add(bigram(field, i));
+                if (i + 3 <= field.length()) {
+                    grams.add(trigram(field, i));
+                }
+            }
+        }
+
+        /** @return the match rank (lower is better), or -1 if the query doesn't match */
+        int rank(String q) {
+            if (q.equals(username)) {
+                return 0;
+            }
+            if (username != null && username.startsWith(q)) {
+                return 1;
+            }
+            if (displayName != null && displayName.startsWith(q)) {
+                return 2;
+            }
+            if (email != null && email.startsWith(q)) {
+                return 3;
+            }
+            if ((username != null && username.contains(q))
+                    || (displayName != null && displayName.contains(q))
+                    || (email != null && email.contains(q))) {
+                return 4;
+            }
+            return -1;
+        }
+    }
+
+    private static final class Match implements Comparable<Match> {
+        private final int rank;
+        private final Doc doc;
+
+        Match(int rank, Doc doc) {
+            this.rank = rank;
+            this.doc = doc;
+        }
+
+        @Override
+        public int compareTo(Match other) {
+            if (rank != other.rank) {
+                return Integer.compare(rank, other.rank);
+            }
+            String a = doc.username != null ? doc.username : "";
+            String b = other.doc.username != null ? other.doc.username : "";
+            return a.compareTo(b);
+        }
+    }
+
+    /** Sorted set of document numbers. */
+    private static final class Postings {
+        private int[] ids = new int[4];
+        private int size;
+
+        void add(int id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                return;
+            }
+            int insertAt = -index - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+            ids[insertAt] = id;
+            size++;
+        }
+
+        boolean remove(int id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+            size--;
+            return true;
+        }
+
+        /** Index of the first id at or after {@code from} that is &gt;= {@code id}. */
+        int seek(int id, int from) {
+            int index = Arrays.binarySearch(ids, from, size, id);
+            return index >= 0 ? index : -index - 1;
+        }
+
+        boolean has(int index, int id) {
+            return index < size && ids[index] == id;
+        }
+    }
+}
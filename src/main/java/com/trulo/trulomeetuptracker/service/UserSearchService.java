@@ -0,0 +1,153 @@
+package com.trulo.trulomeetuptracker.service;
+
+import com.trulo.trulomeetuptracker.model.User;
+import com.trulo.trulomeetuptracker.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.data.mongodb.core.query.TextQuery;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * User search for the invite dialog.
+ *
+ * In {@code memory} mode users are found through a {@link UserNgramIndex} built at startup and
+ * kept current on register/profile updates; only the matched users are then loaded. Until the
+ * index is ready, or once more than {@code search.users.max-indexed} users exist, the same
+ * substring match runs as a case-insensitive regex in MongoDB, unranked. {@code mongo} mode
+ * uses the MongoDB text index instead (whole-word matches only).
+ */
+@Component
+public class UserSearchService {
+
+    private static final Logger log = LoggerFactory.getLogger(UserSearchService.class);
+
+    @Value("${search.users.mode:memory}")
+    private String mode;
+
+    @Value("${search.users.max-indexed:200000}")
+    private int maxIndexed;
+
+    @Value("${search.users.max-candidates:" + UserNgramIndex.DEFAULT_MAX_CANDIDATES + "}")
+    private int maxCandidates;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    // Null when the in-memory index is disabled
+    private volatile UserNgramIndex index;
+    private volatile boolean ready;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildIndex() {
+        if (!"memory".equals(mode)) {
+            return;
+        }
+        index = new UserNgramIndex(maxCandidates);
+
+        Query query = new Query();
+        query.fields().include("username").include("displayName").include("email");
+        try (CloseableIterator<User> users = mongoTemplate.stream(query, User.class)) {
+            while (users.hasNext()) {
+                if (!add(users.next())) {
+                    return;
+                }
+            }
+        }
+
+        ready = true;
+        log.info("User search index built with {} users", index.size());
+    }
+
+    /** Called after a user is created or their profile changes. */
+    public void index(User user) {
+        add(user);
+    }
+
+    public List<User> search(String query, String excludeUserId, int limit) {
+        List<String> ids = searchIndex(query, excludeUserId, limit).orElse(null);
+        if (ids == null) {
+            return mongoTemplate.find(mongoQuery(query, excludeUserId, limit), User.class);
+        }
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Map<String, User> byId = new HashMap<>();
+        for (User user : userRepository.findAllById(ids)) {
+            byId.put(user.getId(), user);
+        }
+        List<User> users = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            User user = byId.get(id);
+            if (user != null) {
+                users.add(user);
+            }
+        }
+        return users;
+    }
+
+    /**
+     * Ids of the matching users from the in-memory index, best first.
+     * @return empty if the index can't be used, in which case search with {@link #mongoQuery}
+     */
+    public Optional<List<String>> searchIndex(String query, String excludeUserId, int limit) {
+        UserNgramIndex current = index;
+        if (current == null || !ready) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(current.search(query, excludeUserId, limit));
+    }
+
+    /** The MongoDB search for when {@link #searchIndex} is empty. */
+    public Query mongoQuery(String query, String excludeUserId, int limit) {
+        if ("mongo".equals(mode)) {
+            return textQuery(query, excludeUserId, limit);
+        }
+        // Substring semantics, as the index has; an unindexed scan that stops at `limit` matches
+        Pattern pattern = Pattern.compile(Pattern.quote(query), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+        return new Query(new Criteria().orOperator(
+                Criteria.where("username").regex(pattern),
+                Criteria.where("displayName").regex(pattern),
+                Criteria.where("email").regex(pattern)))
+                .addCriteria(Criteria.where("_id").ne(excludeUserId))
+                .limit(limit);
+    }
+
+    public static Query textQuery(String query, String excludeUserId, int limit) {
+        return TextQuery.queryText(TextCriteria.forDefaultLanguage().matching(query))
+                .sortByScore()
+                .addCriteria(Criteria.where("_id").ne(excludeUserId))
+                .limit(limit);
+    }
+
+    /** @return false if the index was dropped for exceeding its bound */
+    private boolean add(User user) {
+        UserNgramIndex current = index;
+        if (current == null) {
+            return false;
+        }
+        if (current.size() >= maxIndexed && !current.contains(user.getId())) {
+            index = null;
+            ready = false;
+            log.warn("User search index exceeded {} users; searching MongoDB instead", maxIndexed);
+            return false;
+        }
+        current.put(user.getId(), user.getUsername(), user.getDisplayName(), user.getEmail());
+        return true;
+    }
+}
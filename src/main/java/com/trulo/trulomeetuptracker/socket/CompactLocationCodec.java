@@ -0,0 +1,187 @@
+package com.trulo.trulomeetuptracker.socket;
+
+import java.util.*;
+
+/**
+ * Per-room encoder for the compact location protocol, selected by connecting with
+ * {@code ?protocol=compact}. Compact clients get a {@code member_slots} table mapping
+ * userIds to small integer slots, then {@code locations_compact} events carrying one
+ * binary attachment per frame:
+ *
+ * <pre>
+ * u8     version (1)
+ * varint baseTime   ms since the room epoch from member_slots
+ * varint count
+ * count x {
+ *   varint slot &lt;&lt; 1 | absolute
+ *   zigzag latitude   micro-degrees; absolute, or delta against the slot's previous fix
+ *   zigzag longitude  micro-degrees; absolute, or delta against the slot's previous fix
+ *   varint dt         ms after baseTime
+ * }
+ * </pre>
+ *
+ * After a compact client joins, each slot's next entry is absolute. Clients ignore delta
+ * entries for slots they have no base for yet.
+ */
+final class CompactLocationCodec {
+
+    static final int VERSION = 1;
+    private static final double SCALE = 1_000_000d;
+
+    private final long epoch = System.currentTimeMillis();
+
+    // All state below is guarded by this
+    private final Map<String, Integer> slots = new HashMap<>();
+    private final Set<String> members = new HashSet<>();
+    private int compactSessions;
+    private int generation;
+    private int[] lastLatitude = new int[16];
+    private int[] lastLongitude = new int[16];
+    private int[] slotGeneration = new int[16];
+
+    CompactLocationCodec() {
+        Arrays.fill(slotGeneration, -1);
+    }
+
+    /** @return true if the user was given a new slot */
+    synchronized boolean addMember(String userId) {
+        members.add(userId);
+        return addSlot(userId);
+    }
+
+    /**
+     * Gives a slot to a user connected to another node without counting them as a local member.
+     * @return true if the user was given a new slot
+     */
+    synchronized boolean addSlot(String userId) {
+        if (slots.containsKey(userId)) {
+            return false;
+        }
+        // Slots are never reused while the room is alive, so a client's base can't go stale
+        int slot = slots.size();
+        slots.put(userId, slot);
+        ensureCapacity(slot + 1);
+        return true;
+    }
+
+    /** @return true if the room has no members left */
+    synchronized boolean removeMember(String userId) {
+        members.remove(userId);
+        return members.isEmpty();
+    }
+
+    synchronized void compactSessionJoined() {
+        compactSessions++;
+        // The new client has no base for any slot yet
+        generation++;
+    }
+
+    synchronized void compactSessionLeft() {
+        compactSessions = Math.max(0, compactSessions - 1);
+    }
+
+    synchronized boolean hasCompactSessions() {
+        return compactSessions > 0;
+    }
+
+    synchronized Map<String, Object> slotTable(String meetupId) {
+        Map<String, Object> table = new HashMap<>();
+        table.put("meetupId", meetupId);
+        table.put("version", VERSION);
+        table.put("epoch", epoch);
+        table.put("slots", new HashMap<>(slots));
+        return table;
+    }
+
+    synchronized byte[] encode(List<LocationFix> fixes) {
+        long baseTime = Long.MAX_VALUE;
+        int count = 0;
+        for (LocationFix fix : fixes) {
+            if (isEncodable(fix)) {
+                baseTime = Math.min(baseTime, fix.timestamp);
+                count++;
+            }
+        }
+        if (count == 0) {
+            return null;
+        }
+
+        FrameWriter out = new FrameWriter(4 + count * 12);
+        out.writeByte(VERSION);
+        out.writeVarLong(Math.max(0, baseTime - epoch));
+        out.writeVarLong(count);
+
+        for (LocationFix fix : fixes) {
+            if (!isEncodable(fix)) {
+                continue;
+            }
+            int slot = slots.get(fix.userId);
+            int latitude = (int) Math.round(fix.latitude * SCALE);
+            int longitude = (int) Math.round(fix.longitude * SCALE);
+            boolean absolute = slotGeneration[slot] != generation;
+
+            out.writeVarLong(((long) slot << 1) | (absolute ? 1 : 0));
+            if (absolute) {
+                out.writeZigZag(latitude);
+                out.writeZigZag(longitude);
+            } else {
+                out.writeZigZag((long) latitude - lastLatitude[slot]);
+                out.writeZigZag((long) longitude - lastLongitude[slot]);
+            }
+            out.writeVarLong(fix.timestamp - baseTime);
+
+            lastLatitude[slot] = latitude;
+            lastLongitude[slot] = longitude;
+            slotGeneration[slot] = generation;
+        }
+        return out.toByteArray();
+    }
+
+    private boolean isEncodable(LocationFix fix) {
+        return fix.latitude != null && fix.longitude != null && slots.containsKey(fix.userId);
+    }
+
+    private void ensureCapacity(int size) {
+        if (size <= slotGeneration.length) {
+            return;
+        }
+        int newLength = Math.max(size, slotGeneration.length * 2);
+        int oldLength = slotGeneration.length;
+        lastLatitude = Arrays.copyOf(lastLatitude, newLength);
+        lastLongitude = Arrays.copyOf(lastLongitude, newLength);
+        slotGeneration = Arrays.copyOf(slotGeneration, newLength);
+        Arrays.fill(slotGeneration, oldLength, newLength, -1);
+    }
+
+    private static final class FrameWriter {
+        private byte[] buffer;
+        private int size;
+
+        FrameWriter(int initialCapacity) {
+            this.buffer = new byte[initialCapacity];
+        }
+
+        void writeByte(int value) {
+            if (size == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                writeByte((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            writeByte((int) value);
+        }
+
+        void writeZigZag(long value) {
+            writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.trulo.trulomeetuptracker.socket;
+
+import com.trulo.trulomeetuptracker.tracking.ActiveMeetupCache;
+import com.trulo.trulomeetuptracker.tracking.MeetupSnapshot;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Evicts sessions that have been idle for longer than their meetup's idle timeout
+ * ({@code settings.idleTimeoutSeconds}, or {@code socket.idle.timeout-ms}).
+ *
+ * Every session has one pending timeout on a hashed timing wheel. Activity only updates the
+ * session's lastSeen; when the timeout fires it either evicts the session or reschedules
+ * itself for the remaining time, so nothing ever scans all sessions.
+ */
+@Component
+public class IdleSessionSweeper {
+
+    private static final Logger log = LoggerFactory.getLogger(IdleSessionSweeper.class);
+
+    // 0 disables eviction
+    @Value("${socket.idle.timeout-ms:600000}")
+    private long defaultTimeoutMillis;
+
+    @Value("${socket.idle.tick-ms:1000}")
+    private long tickMillis;
+
+    @Value("${socket.idle.wheel-size:512}")
+    private int wheelSize;
+
+    private final SessionRegistry sessions;
+    private final ActiveMeetupCache meetupCache;
+
+    // Map: sessionId -> pending timeout
+    private final Map<String, Timeout> timeouts = new ConcurrentHashMap<>();
+    private volatile Consumer<SessionRegistry.Session> evictor = session -> {
+    };
+
+    private final AtomicLong evicted = new AtomicLong();
+    private final AtomicLong rescheduled = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    private HashedWheelTimer timer;
+
+    @Autowired
+    public IdleSessionSweeper(SessionRegistry sessions, ActiveMeetupCache meetupCache) {
+        this.sessions = sessions;
+        this.meetupCache = meetupCache;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (defaultTimeoutMillis <= 0) {
+            return;
+        }
+        timer = new HashedWheelTimer(r -> {
+            Thread t = new Thread(r, "idle-session-sweeper");
+            t.setDaemon(true);
+            return t;
+        }, tickMillis, TimeUnit.MILLISECONDS, wheelSize);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (timer != null) {
+            timer.stop();
+        }
+    }
+
+    public void onEvict(Consumer<SessionRegistry.Session> evictor) {
+        this.evictor = evictor;
+    }
+
+    /** (Re)arms the session's timeout; called on connect and once the snapshot of a joined meetup has loaded. */
+    public void track(String sessionId) {
+        if (timer == null) {
+            return;
+        }
+        SessionRegistry.Session session = sessions.get(sessionId);
+        if (session != null) {
+            schedule(sessionId, timeoutFor(session));
+        }
+    }
+
+    public void untrack(String sessionId) {
+        Timeout timeout = timeouts.remove(sessionId);
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
+
+    public long getEvicted() {
+        return evicted.get();
+    }
+
+    public long getRescheduled() {
+        return rescheduled.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public int getTracked() {
+        return timeouts.size();
+    }
+
+    private void schedule(String sessionId, long delayMillis) {
+        Timeout previous = timeouts.put(sessionId,
+                timer.newTimeout(t -> expire(sessionId), delayMillis, TimeUnit.MILLISECONDS));
+        if (previous != null) {
+            previous.cancel();
+        }
+    }
+
+    private void expire(String sessionId) {
+        SessionRegistry.Session session = sessions.get(sessionId);
+        if (session == null) {
+            timeouts.remove(sessionId);
+            return;
+        }
+
+        long timeout = timeoutFor(session);
+        long idleFor = System.currentTimeMillis() - session.getLastSeen();
+        if (idleFor < timeout) {
+            rescheduled.incrementAndGet();
+            schedule(sessionId, timeout - idleFor);
+            return;
+        }
+
+        timeouts.remove(sessionId);
+        evicted.incrementAndGet();
+        try {
+            evictor.accept(session);
+        } catch (RuntimeException e) {
+            failed.incrementAndGet();
+            log.warn("Failed to evict idle session {}", sessionId, e);
+        }
+    }
+
+    /** The shortest timeout among the session's meetups. */
+    private long timeoutFor(SessionRegistry.Session session) {
+        long timeout = Long.MAX_VALUE;
+        for (String meetupId : session.getMeetups()) {
+            MeetupSnapshot snapshot = meetupCache.getIfReady(meetupId);
+            if (snapshot != null && snapshot.getIdleTimeoutMillis() > 0) {
+                timeout = Math.min(timeout, snapshot.getIdleTimeoutMillis());
+            }
+        }
+        return timeout == Long.MAX_VALUE ? defaultTimeoutMillis : timeout;
+    }
+}
@@ -0,0 +1,306 @@
+package com.trulo.trulomeetuptracker.socket;
+
+import com.corundumstudio.socketio.SocketIOClient;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Location fan-out for meetup rooms.
+ *
+ * Fixes are coalesced per room and pushed on a fixed tick as one {@code locations_updated}
+ * frame per client, instead of one {@code location_updated} event per fix per recipient.
+ * Only the latest fix of each user is kept between ticks.
+ *
+ * Clients that connect with {@code ?protocol=compact} receive binary
+ * {@code locations_compact} frames instead (see {@link CompactLocationCodec}). Each room has
+ * a JSON and a compact sub-room so every client only gets its own format.
+ *
+ * Fixes are shared with other nodes as raw positions ({@link #acceptRemote}); every node
+ * batches and encodes for its own clients only.
+ */
+@Component
+public class LocationBroadcaster {
+
+    private static final Logger log = LoggerFactory.getLogger(LocationBroadcaster.class);
+
+    static final String COMPACT_PROTOCOL = "compact";
+
+    private final RoomBroadcaster roomBroadcaster;
+    private final SessionRegistry sessions;
+    private final Timer flushTimer;
+    private final Counter flushFailures;
+    // Only touched by the ticker thread
+    private boolean failing;
+
+    // 0 disables batching and fixes are sent immediately as location_updated
+    @Value("${socket.location.tick-ms:500}")
+    private long tickMs;
+
+    // Map: meetupId -> pending fixes
+    private final Map<String, RoomState> rooms = new ConcurrentHashMap<>();
+    // Map: meetupId -> compact protocol state
+    private final Map<String, CompactLocationCodec> codecs = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService ticker;
+
+    @Autowired
+    public LocationBroadcaster(RoomBroadcaster roomBroadcaster, SessionRegistry sessions,
+            MeterRegistry meterRegistry) {
+        this.roomBroadcaster = roomBroadcaster;
+        this.sessions = sessions;
+        this.flushTimer = Timer.builder("trulo.socket.location.flush")
+                .description("One location tick across all rooms")
+                .register(meterRegistry);
+        this.flushFailures = Counter.builder("trulo.socket.location.flush.failed")
+                .description("Location ticks that threw")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!isEnabled()) {
+            return;
+        }
+        ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "location-broadcast");
+            t.setDaemon(true);
+            return t;
+        });
+        ticker.scheduleAtFixedRate(this::flushSafely, tickMs, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+        }
+    }
+
+    public boolean isEnabled() {
+        return tickMs > 0;
+    }
+
+    public static boolean isCompact(SocketIOClient client) {
+        return COMPACT_PROTOCOL.equals(client.getHandshakeData().getSingleUrlParam("protocol"));
+    }
+
+    public void join(SocketIOClient client, String meetupId, String userId) {
+        boolean compact = isCompact(client);
+        // Join before the generation bump below: a frame encoded in between may carry deltas the
+        // client has no base for (it skips those), but the next one is absolute for every slot
+        client.joinRoom(compact ? compactRoom(meetupId) : jsonRoom(meetupId));
+
+        boolean[] newSlotHolder = new boolean[1];
+        // compute() keeps this atomic with leave() dropping an emptied room
+        CompactLocationCodec codec = codecs.compute(meetupId, (k, existing) -> {
+            CompactLocationCodec state = existing != null ? existing : new CompactLocationCodec();
+            newSlotHolder[0] = state.addMember(userId);
+            if (compact) {
+                state.compactSessionJoined();
+            }
+            return state;
+        });
+        boolean newSlot = newSlotHolder[0];
+
+        if (compact && !newSlot) {
+            client.sendEvent("member_slots", codec.slotTable(meetupId));
+        }
+
+        if (newSlot) {
+            roomBroadcaster.broadcastLocal(compactRoom(meetupId), "member_slots", codec.slotTable(meetupId));
+        }
+    }
+
+    /**
+     * @param client   null when evicting a session whose socket is already gone
+     * @param userLeft true if this was the user's last session in the meetup; their pending
+     *                 fix and membership are only dropped then
+     */
+    public void leave(SocketIOClient client, boolean compact, String meetupId, String userId, boolean userLeft) {
+        if (client != null) {
+            client.leaveRoom(jsonRoom(meetupId));
+            client.leaveRoom(compactRoom(meetupId));
+        }
+
+        if (userLeft) {
+            rooms.computeIfPresent(meetupId, (k, room) -> {
+                room.latest.remove(userId);
+                return room.latest.isEmpty() ? null : room;
+            });
+        }
+
+        codecs.computeIfPresent(meetupId, (k, codec) -> {
+            if (compact) {
+                codec.compactSessionLeft();
+            }
+            return userLeft && codec.removeMember(userId) ? null : codec;
+        });
+    }
+
+    /** Ignored unless the sender's session has joined the meetup, so no room state is created for outsiders. */
+    public void publish(SocketIOClient sender, String meetupId, String userId, Double latitude, Double longitude) {
+        if (meetupId == null || !sessions.isJoined(sender.getSessionId().toString(), meetupId)) {
+            return;
+        }
+        LocationFix fix = new LocationFix(userId, latitude, longitude, System.currentTimeMillis());
+        roomBroadcaster.publishLocation(meetupId, userId, latitude, longitude, fix.timestamp);
+        accept(sender, meetupId, fix);
+    }
+
+    /**
+     * A fix published by another node; ignored unless someone here is in the meetup.
+     * @return true if the fix was accepted
+     */
+    public boolean acceptRemote(String meetupId, String userId, Double latitude, Double longitude, long timestamp) {
+        CompactLocationCodec codec = codecs.get(meetupId);
+        if (codec == null) {
+            return false;
+        }
+        if (codec.addSlot(userId)) {
+            roomBroadcaster.broadcastLocal(compactRoom(meetupId), "member_slots", codec.slotTable(meetupId));
+        }
+        accept(null, meetupId, new LocationFix(userId, latitude, longitude, timestamp));
+        return true;
+    }
+
+    /** Drops the last fix of a user who left the meetup on another node. */
+    public void forgetRemote(String meetupId, String userId) {
+        rooms.computeIfPresent(meetupId, (k, room) -> {
+            room.latest.remove(userId);
+            return room.latest.isEmpty() ? null : room;
+        });
+    }
+
+    private void accept(SocketIOClient sender, String meetupId, LocationFix fix) {
+        if (!isEnabled()) {
+            sendImmediately(sender, meetupId, fix);
+            return;
+        }
+
+        // compute() keeps this atomic with leave() dropping an emptied room
+        rooms.compute(meetupId, (k, room) -> {
+            RoomState state = room != null ? room : new RoomState();
+            state.latest.put(fix.userId, fix);
+            return state;
+        });
+    }
+
+    private void sendImmediately(SocketIOClient sender, String meetupId, LocationFix fix) {
+        Map<String, Object> broadcastData = new HashMap<>();
+        broadcastData.put("userId", fix.userId);
+        broadcastData.put("latitude", fix.latitude);
+        broadcastData.put("longitude", fix.longitude);
+        broadcastData.put("timestamp", new Date(fix.timestamp));
+        if (sender != null) {
+            roomBroadcaster.broadcastLocalExcept(jsonRoom(meetupId), "location_updated", broadcastData, sender);
+        } else {
+            roomBroadcaster.broadcastLocal(jsonRoom(meetupId), "location_updated", broadcastData);
+        }
+
+        sendCompact(sender, meetupId, Collections.singletonList(fix));
+    }
+
+    private void flushSafely() {
+        long start = System.nanoTime();
+        try {
+            flush();
+            if (failing) {
+                failing = false;
+                log.info("Location broadcast ticks recovered");
+            }
+        } catch (RuntimeException e) {
+            // Never let one bad tick cancel the scheduled task. Logged once per run of failures,
+            // the counter has the rest.
+            flushFailures.increment();
+            if (!failing) {
+                failing = true;
+                log.warn("Location broadcast tick failed", e);
+            }
+        } finally {
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    void flush() {
+        for (Map.Entry<String, RoomState> entry : rooms.entrySet()) {
+            String meetupId = entry.getKey();
+            List<LocationFix> changed = entry.getValue().drainChanged();
+            if (changed.isEmpty()) {
+                continue;
+            }
+
+            List<Map<String, Object>> locations = new ArrayList<>(changed.size());
+            for (LocationFix fix : changed) {
+                Map<String, Object> location = new HashMap<>();
+                location.put("userId", fix.userId);
+                location.put("latitude", fix.latitude);
+                location.put("longitude", fix.longitude);
+                location.put("timestamp", new Date(fix.timestamp));
+                locations.add(location);
+            }
+
+            Map<String, Object> batch = new HashMap<>();
+            batch.put("meetupId", meetupId);
+            batch.put("locations", locations);
+
+            // Senders receive their own fix back as part of the batch; clients skip their own userId
+            roomBroadcaster.broadcastLocal(jsonRoom(meetupId), "locations_updated", batch);
+
+            sendCompact(null, meetupId, changed);
+        }
+    }
+
+    private void sendCompact(SocketIOClient sender, String meetupId, List<LocationFix> fixes) {
+        CompactLocationCodec codec = codecs.get(meetupId);
+        if (codec == null || !codec.hasCompactSessions()) {
+            return;
+        }
+        byte[] frame = codec.encode(fixes);
+        if (frame != null) {
+            roomBroadcaster.broadcastBinary(compactRoom(meetupId), "locations_compact", frame, sender);
+        }
+    }
+
+    private static String jsonRoom(String meetupId) {
+        return "meetup_" + meetupId + ":json";
+    }
+
+    private static String compactRoom(String meetupId) {
+        return "meetup_" + meetupId + ":compact";
+    }
+
+    private static final class RoomState {
+        // Written by socket threads, read by the ticker
+        private final Map<String, LocationFix> latest = new ConcurrentHashMap<>();
+        // Only touched by the ticker thread
+        private final Map<String, LocationFix> sent = new HashMap<>();
+
+        List<LocationFix> drainChanged() {
+            List<LocationFix> changed = new ArrayList<>();
+            for (LocationFix fix : latest.values()) {
+                if (sent.get(fix.userId) != fix) {
+                    sent.put(fix.userId, fix);
+                    changed.add(fix);
+                }
+            }
+            if (sent.size() > latest.size()) {
+                sent.keySet().retainAll(latest.keySet());
+            }
+            return changed;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.trulo.trulomeetuptracker.socket;
+
+/**
+ * One reported position of a user, as received by the server.
+ */
+final class LocationFix {
+    final String userId;
+    final Double latitude;
+    final Double longitude;
+    final long timestamp; // epoch millis, server receive time
+
+    LocationFix(String userId, Double latitude, Double longitude, long timestamp) {
+        this.userId = userId;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.timestamp = timestamp;
+    }
+}
@@ -0,0 +1,160 @@
+package com.trulo.trulomeetuptracker.socket;
+
+import com.corundumstudio.socketio.SocketIOClient;
+import com.trulo.trulomeetuptracker.security.PrincipalCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds the events of sockets whose user has not been confirmed yet.
+ *
+ * The handshake accepts any correctly signed token without waiting on MongoDB (see
+ * {@link SocketIOConfig}). Until the user is found, every event the socket sends is queued here
+ * instead of being handled; it is replayed in order once the user is confirmed, and dropped with
+ * the socket if the user is gone or the lookup takes longer than {@code socket.user-check.timeout-ms}.
+ */
+@Component
+public class PendingUserChecks {
+
+    private static final Logger log = LoggerFactory.getLogger(PendingUserChecks.class);
+
+    @Value("${socket.user-check.timeout-ms:5000}")
+    private long timeoutMillis;
+
+    private final PrincipalCache principalCache;
+
+    // Map: sessionId -> events waiting for the user check
+    private final Map<String, Held> pending = new ConcurrentHashMap<>();
+
+    private final AtomicLong confirmed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    @Autowired
+    public PendingUserChecks(PrincipalCache principalCache) {
+        this.principalCache = principalCache;
+    }
+
+    /** Called on connect for a socket accepted before its user was found in the principal cache. */
+    public void begin(SocketIOClient client, String userId) {
+        // Connect listeners can run more than once per socket; one check is enough
+        String sessionId = client.getSessionId().toString();
+        Held held = new Held();
+        if (principalCache.getIfPresent(userId) != null || pending.putIfAbsent(sessionId, held) != null) {
+            return;
+        }
+
+        principalCache.getAsync(userId)
+                .orTimeout(timeoutMillis, TimeUnit.MILLISECONDS)
+                .whenComplete((user, e) -> {
+                    if (e == null && user.isPresent()) {
+                        // Still in the map while replaying, so newer events queue behind
+                        held.release();
+                        pending.remove(sessionId, held);
+                        confirmed.incrementAndGet();
+                        return;
+                    }
+                    pending.remove(sessionId, held);
+                    rejected.incrementAndGet();
+                    held.discard();
+                    if (e != null) {
+                        log.warn("User check for {} failed, disconnecting", userId, e);
+                    }
+                    client.disconnect();
+                });
+    }
+
+    /**
+     * Queues the event if the socket's user is still being checked.
+     *
+     * @return true if the event was queued; false if the caller should handle it now
+     */
+    public boolean hold(SocketIOClient client, Runnable event) {
+        if (pending.isEmpty()) {
+            return false;
+        }
+        Held held = pending.get(client.getSessionId().toString());
+        return held != null && held.add(event);
+    }
+
+    /** Called on disconnect; drops anything still held for the socket. */
+    public void discard(String sessionId) {
+        Held held = pending.remove(sessionId);
+        if (held != null) {
+            held.discard();
+        }
+    }
+
+    public int getPending() {
+        return pending.size();
+    }
+
+    public long getConfirmed() {
+        return confirmed.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    private static final class Held {
+        // null once released or discarded; events then go straight to the handlers
+        private List<Runnable> events = new ArrayList<>();
+        private boolean discarded;
+        // Replayed events pass through the handlers' hold() check again
+        private Thread replaying;
+
+        synchronized boolean add(Runnable event) {
+            if (discarded) {
+                return true;
+            }
+            if (events == null || Thread.currentThread() == replaying) {
+                return false;
+            }
+            events.add(event);
+            return true;
+        }
+
+        /** Replays in order, including events added while replaying, before letting new ones through. */
+        void release() {
+            synchronized (this) {
+                replaying = Thread.currentThread();
+            }
+            while (true) {
+                List<Runnable> batch;
+                synchronized (this) {
+                    if (discarded) {
+                        return;
+                    }
+                    if (events.isEmpty()) {
+                        events = null;
+                        return;
+                    }
+                    batch = events;
+                    events = new ArrayList<>();
+                }
+                for (Runnable event : batch) {
+                    try {
+                        event.run();
+                    } catch (RuntimeException e) {
+                        log.warn("Held socket event failed", e);
+                    }
+                }
+            }
+        }
+
+        synchronized void discard() {
+            discarded = true;
+            events = null;
+        }
+    }
+}
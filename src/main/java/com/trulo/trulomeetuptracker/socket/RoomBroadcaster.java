@@ -0,0 +1,180 @@
+package com.trulo.trulomeetuptracker.socket;
+
+import com.corundumstudio.socketio.BroadcastOperations;
+import com.corundumstudio.socketio.SocketIOClient;
+import com.corundumstudio.socketio.SocketIOServer;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.util.RawValue;
+import com.trulo.trulomeetuptracker.socket.cluster.ClusterBus;
+import com.trulo.trulomeetuptracker.socket.cluster.ClusterMessage;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Room fan-out that serializes each payload once. The encoded JSON is handed to every
+ * recipient as a raw value, so per-client packet encoding only copies it into the frame.
+ * Binary frames go through {@link #broadcastBinary} and are sent as Socket.IO attachments.
+ *
+ * {@link #broadcast} and {@link #broadcastExcept} also publish the encoded event on the
+ * {@link ClusterBus} so members connected to other nodes receive it. The {@code *Local}
+ * variants stay on this node; location frames use them because every node builds its own
+ * frames from the raw fixes shared with {@link #publishLocation}.
+ */
+@Component
+public class RoomBroadcaster {
+
+    private static final Logger log = LoggerFactory.getLogger(RoomBroadcaster.class);
+
+    private final SocketIOServer server;
+    private final ClusterBus clusterBus;
+    private final MeterRegistry meterRegistry;
+    // trulo.socket.broadcast by event name; the names are fixed in code, so the tag stays small
+    private final Map<String, Timer> broadcastTimers = new ConcurrentHashMap<>();
+    private final String nodeId = UUID.randomUUID().toString();
+    private final List<Consumer<ClusterMessage>> remoteListeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong clusterFailures = new AtomicLong();
+
+    // Same settings as netty-socketio's JacksonJsonSupport, so the wire format is unchanged
+    private final ObjectMapper mapper = new ObjectMapper()
+            .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+            .configure(SerializationFeature.WRITE_BIGDECIMAL_AS_PLAIN, true);
+
+    @Autowired
+    public RoomBroadcaster(SocketIOServer server, ClusterBus clusterBus, MeterRegistry meterRegistry) {
+        this.server = server;
+        this.clusterBus = clusterBus;
+        this.meterRegistry = meterRegistry;
+        FunctionCounter.builder("trulo.socket.cluster.failed", clusterFailures, AtomicLong::get)
+                .description("Cluster messages from other nodes that could not be delivered locally")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        clusterBus.subscribe(this::onClusterMessage);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public void broadcast(String room, String event, Object payload) {
+        long start = System.nanoTime();
+        RawValue encoded = encode(payload);
+        server.getRoomOperations(room).sendEvent(event, encoded);
+        clusterBus.publish(ClusterMessage.event(nodeId, room, event, encoded.rawValue().toString()));
+        record(event, start);
+    }
+
+    public void broadcastExcept(String room, String event, Object payload, SocketIOClient sender) {
+        long start = System.nanoTime();
+        RawValue encoded = encode(payload);
+        BroadcastOperations operations = server.getRoomOperations(room);
+        operations.sendEvent(event, sender, encoded);
+        // The sender is connected here, so other nodes send to all of their members
+        clusterBus.publish(ClusterMessage.event(nodeId, room, event, encoded.rawValue().toString()));
+        record(event, start);
+    }
+
+    public void broadcastLocal(String room, String event, Object payload) {
+        long start = System.nanoTime();
+        server.getRoomOperations(room).sendEvent(event, encode(payload));
+        record(event, start);
+    }
+
+    public void broadcastLocalExcept(String room, String event, Object payload, SocketIOClient sender) {
+        long start = System.nanoTime();
+        BroadcastOperations operations = server.getRoomOperations(room);
+        operations.sendEvent(event, sender, encode(payload));
+        record(event, start);
+    }
+
+    public void broadcastBinary(String room, String event, byte[] frame, SocketIOClient sender) {
+        long start = System.nanoTime();
+        BroadcastOperations operations = server.getRoomOperations(room);
+        if (sender != null) {
+            operations.sendEvent(event, sender, frame);
+        } else {
+            operations.sendEvent(event, frame);
+        }
+        record(event, start);
+    }
+
+    public void publishLocation(String meetupId, String userId, Double latitude, Double longitude, long timestamp) {
+        clusterBus.publish(ClusterMessage.location(nodeId, meetupId, userId, latitude, longitude, timestamp));
+    }
+
+    public void publishLeft(String meetupId, String userId) {
+        clusterBus.publish(ClusterMessage.left(nodeId, meetupId, userId));
+    }
+
+    /** Receives LOCATION and LEFT messages published by other nodes. */
+    public void onRemote(Consumer<ClusterMessage> listener) {
+        remoteListeners.add(listener);
+    }
+
+    private void onClusterMessage(ClusterMessage message) {
+        if (nodeId.equals(message.getNodeId())) {
+            return;
+        }
+        try {
+            if (ClusterMessage.EVENT.equals(message.getType())) {
+                long start = System.nanoTime();
+                server.getRoomOperations(message.getRoom())
+                        .sendEvent(message.getEvent(), new RawValue(message.getJson()));
+                record(message.getEvent(), start);
+                return;
+            }
+            for (Consumer<ClusterMessage> listener : remoteListeners) {
+                listener.accept(message);
+            }
+        } catch (RuntimeException e) {
+            // Logged for the first failure and every 1000th after it; the counter has them all
+            long failures = clusterFailures.incrementAndGet();
+            if (failures % 1000 == 1) {
+                log.warn("Failed to handle {} cluster message for room {} ({} failures so far)",
+                        message.getType(), message.getRoom(), failures, e);
+            }
+        }
+    }
+
+    /** Time to encode and hand a frame to every local member of the room. */
+    private void record(String event, long start) {
+        // get() first: computeIfAbsent would allocate a capturing lambda on every call
+        Timer timer = broadcastTimers.get(event);
+        if (timer == null) {
+            timer = broadcastTimers.computeIfAbsent(event, name -> Timer.builder("trulo.socket.broadcast")
+                    .description("Room fan-out: payload encoding plus per-member packet queueing")
+                    .tag("event", name)
+                    .register(meterRegistry));
+        }
+        timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    public RawValue encode(Object payload) {
+        try {
+            return new RawValue(mapper.writeValueAsString(payload));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.trulo.trulomeetuptracker.socket;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local presence keyed by socket session. A user may have several sessions (tabs, devices) and
+ * each session may be in several meetups; a user only counts as gone from a meetup once their
+ * last session there leaves.
+ *
+ * Membership is held in concurrent key sets, so lookups never lock and every join, leave and
+ * disconnect touches a constant number of hash bins regardless of room size. No lock is held
+ * across a room: joins and leaves only contend on the joining user's own entry, and an emptied
+ * room is retired with a CAS so a concurrent join retries on a fresh one.
+ */
+@Component
+public class SessionRegistry {
+
+    public enum Join { ALREADY_JOINED, SESSION_JOINED, USER_JOINED }
+
+    public enum Departure { NOT_JOINED, SESSION_LEFT, USER_LEFT }
+
+    // Map: sessionId -> session
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    // Map: meetupId -> room
+    private final Map<String, Room> rooms = new ConcurrentHashMap<>();
+
+    public Session connect(String sessionId, String userId, boolean compact) {
+        return sessions.computeIfAbsent(sessionId, k -> new Session(sessionId, userId, compact));
+    }
+
+    public Session get(String sessionId) {
+        return sessions.get(sessionId);
+    }
+
+    /** Removes the session; the caller leaves its meetups first (see {@link Session#getMeetups()}). */
+    public void disconnect(String sessionId) {
+        sessions.remove(sessionId);
+    }
+
+    public Join join(String sessionId, String userId, String meetupId) {
+        Session session = sessions.computeIfAbsent(sessionId, k -> new Session(sessionId, userId, false));
+        if (!session.meetups.add(meetupId)) {
+            return Join.ALREADY_JOINED;
+        }
+        session.touch();
+
+        for (;;) {
+            Room room = rooms.computeIfAbsent(meetupId, k -> new Room());
+            if (room.acquire()) {
+                return room.add(userId, sessionId) ? Join.USER_JOINED : Join.SESSION_JOINED;
+            }
+            // Retired by the last leave between the lookup and acquire()
+            rooms.remove(meetupId, room);
+        }
+    }
+
+    public Departure leave(String sessionId, String userId, String meetupId) {
+        Session session = sessions.get(sessionId);
+        if (session == null || !session.meetups.remove(meetupId)) {
+            return Departure.NOT_JOINED;
+        }
+
+        Room room = rooms.get(meetupId);
+        if (room == null) {
+            return Departure.SESSION_LEFT;
+        }
+        boolean lastSession = room.remove(userId, sessionId);
+        if (room.release()) {
+            rooms.remove(meetupId, room);
+        }
+        return lastSession ? Departure.USER_LEFT : Departure.SESSION_LEFT;
+    }
+
+    public boolean isJoined(String sessionId, String meetupId) {
+        Session session = sessions.get(sessionId);
+        return session != null && session.meetups.contains(meetupId);
+    }
+
+    /** userIds with at least one session in the meetup on this node. */
+    public Set<String> members(String meetupId) {
+        Room room = rooms.get(meetupId);
+        return room != null ? Collections.unmodifiableSet(room.users.keySet()) : Collections.emptySet();
+    }
+
+    public int sessionCount() {
+        return sessions.size();
+    }
+
+    public int roomCount() {
+        return rooms.size();
+    }
+
+    /** Rooms with between {@code minUsers} and {@code maxUsers} distinct users, inclusive. */
+    public int countRooms(int minUsers, int maxUsers) {
+        int count = 0;
+        for (Room room : rooms.values()) {
+            int users = room.users.size();
+            if (users >= minUsers && users <= maxUsers) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static final class Room {
+        // Map: userId -> sessionIds in the room
+        private final Map<String, Set<String>> users = new ConcurrentHashMap<>();
+        // Sessions in the room, or -1 once the last one left and the room was retired
+        private final AtomicInteger sessions = new AtomicInteger();
+
+        /** @return false if the room was retired and the caller must use a new one */
+        boolean acquire() {
+            for (;;) {
+                int count = sessions.get();
+                if (count < 0) {
+                    return false;
+                }
+                if (sessions.compareAndSet(count, count + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        /** @return true if this retired the room */
+        boolean release() {
+            return sessions.decrementAndGet() == 0 && sessions.compareAndSet(0, -1);
+        }
+
+        /** @return true if this is the user's first session in the room */
+        boolean add(String userId, String sessionId) {
+            boolean[] first = new boolean[1];
+            // Only this user's entry is locked, never the room
+            users.compute(userId, (u, userSessions) -> {
+                Set<String> target = userSessions != null ? userSessions : ConcurrentHashMap.newKeySet();
+                first[0] = target.isEmpty();
+                target.add(sessionId);
+                return target;
+            });
+            return first[0];
+        }
+
+        /** @return true if this was the user's last session in the room */
+        boolean remove(String userId, String sessionId) {
+            boolean[] last = new boolean[1];
+            users.computeIfPresent(userId, (u, userSessions) -> {
+                userSessions.remove(sessionId);
+                last[0] = userSessions.isEmpty();
+                return userSessions.isEmpty() ? null : userSessions;
+            });
+            return last[0];
+        }
+    }
+
+    public static final class Session {
+        private final String sessionId;
+        private final String userId;
+        private final boolean compact;
+        private final Set<String> meetups = ConcurrentHashMap.newKeySet();
+        private volatile Double latitude;
+        private volatile Double longitude;
+        private volatile long lastSeen = System.currentTimeMillis();
+
+        Session(String sessionId, String userId, boolean compact) {
+            this.sessionId = sessionId;
+            this.userId = userId;
+            this.compact = compact;
+        }
+
+        public String getSessionId() {
+            return sessionId;
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        public boolean isCompact() {
+            return compact;
+        }
+
+        public Set<String> getMeetups() {
+            return Collections.unmodifiableSet(meetups);
+        }
+
+        public Double getLatitude() {
+            return latitude;
+        }
+
+        public Double getLongitude() {
+            return longitude;
+        }
+
+        public long getLastSeen() {
+            return lastSeen;
+        }
+
+        public void touch() {
+            lastSeen = System.currentTimeMillis();
+        }
+
+        public void moveTo(Double latitude, Double longitude) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            touch();
+        }
+    }
+}
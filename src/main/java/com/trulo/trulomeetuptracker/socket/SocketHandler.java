@@ -5,25 +5,96 @@ import com.corundumstudio.socketio.SocketIOServer;
 import com.corundumstudio.socketio.annotation.OnConnect;
 import com.corundumstudio.socketio.annotation.OnDisconnect;
 import com.corundumstudio.socketio.annotation.OnEvent;
+import com.trulo.trulomeetuptracker.socket.cluster.ClusterMessage;
+import com.trulo.trulomeetuptracker.socket.cluster.PresenceDirectory;
+import com.trulo.trulomeetuptracker.socket.cluster.PresenceEntry;
+import com.trulo.trulomeetuptracker.tracking.ActiveMeetupCache;
+import com.trulo.trulomeetuptracker.tracking.GeofenceEngine;
+import com.trulo.trulomeetuptracker.tracking.LocationHistoryWriter;
+import com.trulo.trulomeetuptracker.tracking.MeetupSpatialIndex;
+import com.trulo.trulomeetuptracker.tracking.NearbyUser;
+import com.trulo.trulomeetuptracker.tracking.SpatialGrid;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class SocketHandler {
 
-    private final SocketIOServer server;
+    private static final Logger log = LoggerFactory.getLogger(SocketHandler.class);
 
-    // Map: userId -> ActiveUserData
-    private final Map<String, ActiveUserData> activeUsers = new ConcurrentHashMap<>();
-    // Map: meetupId -> Set of userIds
-    private final Map<String, Set<String>> meetupRooms = new ConcurrentHashMap<>();
+    private final SocketIOServer server;
+    private final RoomBroadcaster roomBroadcaster;
+    private final LocationBroadcaster locationBroadcaster;
+    private final MeetupSpatialIndex spatialIndex;
+    private final GeofenceEngine geofenceEngine;
+    private final ActiveMeetupCache meetupCache;
+    private final LocationHistoryWriter historyWriter;
+    private final PresenceDirectory presenceDirectory;
+    private final SessionRegistry sessions;
+    private final IdleSessionSweeper idleSweeper;
+    private final PendingUserChecks userChecks;
+
+    // trulo.socket.events by event, and join/leave outcomes; all registered up front so the
+    // handlers only record
+    private final Timer joinTimer;
+    private final Timer locationTimer;
+    private final Timer nearbyTimer;
+    private final Timer leaveTimer;
+    private final Map<SessionRegistry.Join, Counter> joinCounters = new EnumMap<>(SessionRegistry.Join.class);
+    private final Map<SessionRegistry.Departure, Counter> departureCounters =
+            new EnumMap<>(SessionRegistry.Departure.class);
 
     @Autowired
-    public SocketHandler(SocketIOServer server) {
+    public SocketHandler(SocketIOServer server, RoomBroadcaster roomBroadcaster,
+            LocationBroadcaster locationBroadcaster, MeetupSpatialIndex spatialIndex,
+            GeofenceEngine geofenceEngine, ActiveMeetupCache meetupCache, LocationHistoryWriter historyWriter,
+            PresenceDirectory presenceDirectory, SessionRegistry sessions, IdleSessionSweeper idleSweeper,
+            PendingUserChecks userChecks, MeterRegistry meterRegistry) {
         this.server = server;
+        this.roomBroadcaster = roomBroadcaster;
+        this.locationBroadcaster = locationBroadcaster;
+        this.spatialIndex = spatialIndex;
+        this.geofenceEngine = geofenceEngine;
+        this.meetupCache = meetupCache;
+        this.historyWriter = historyWriter;
+        this.presenceDirectory = presenceDirectory;
+        this.sessions = sessions;
+        this.idleSweeper = idleSweeper;
+        this.userChecks = userChecks;
+        this.joinTimer = eventTimer(meterRegistry, "join_meetup");
+        this.locationTimer = eventTimer(meterRegistry, "location_update");
+        this.nearbyTimer = eventTimer(meterRegistry, "nearby_users");
+        this.leaveTimer = eventTimer(meterRegistry, "leave_meetup");
+        for (SessionRegistry.Join join : SessionRegistry.Join.values()) {
+            joinCounters.put(join, Counter.builder("trulo.socket.joins")
+                    .tag("result", join.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry));
+        }
+        for (SessionRegistry.Departure departure : SessionRegistry.Departure.values()) {
+            departureCounters.put(departure, Counter.builder("trulo.socket.leaves")
+                    .tag("result", departure.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry));
+        }
+        roomBroadcaster.onRemote(this::onRemoteMessage);
+        idleSweeper.onEvict(this::evictIdle);
+        // Engine.IO v4 clients answer the server's pings, v3 clients send their own
+        server.addPingListener(this::onHeartbeat);
+        server.addPongListener(this::onHeartbeat);
+    }
+
+    private static Timer eventTimer(MeterRegistry meterRegistry, String event) {
+        return Timer.builder("trulo.socket.events")
+                .description("Socket.IO event handling time on the handler thread")
+                .tag("event", event)
+                .register(meterRegistry);
     }
 
     private String getUserId(SocketIOClient client) {
@@ -34,150 +105,337 @@ public class SocketHandler {
         return null; // Should not happen due to AuthorizationListener
     }
 
+    private void touch(SocketIOClient client) {
+        SessionRegistry.Session session = sessions.get(client.getSessionId().toString());
+        if (session != null) {
+            session.touch();
+            refreshPresence(session);
+        }
+    }
+
+    /** Heartbeats are not activity, so the session stays idle, but its presence must not expire. */
+    private void onHeartbeat(SocketIOClient client) {
+        SessionRegistry.Session session = sessions.get(client.getSessionId().toString());
+        if (session != null) {
+            refreshPresence(session);
+        }
+    }
+
+    private void refreshPresence(SessionRegistry.Session session) {
+        for (String meetupId : session.getMeetups()) {
+            presenceDirectory.refresh(meetupId, session.getSessionId());
+        }
+    }
+
     @OnConnect
     public void onConnect(SocketIOClient client) {
         String userId = getUserId(client);
-        System.out.println("User connected: " + userId);
+        log.debug("User connected: {}", userId);
         client.joinRoom("user_" + userId);
+        String sessionId = client.getSessionId().toString();
+        sessions.connect(sessionId, userId, LocationBroadcaster.isCompact(client));
+        idleSweeper.track(sessionId);
     }
 
     @OnEvent("join_meetup")
     public void onJoinMeetup(SocketIOClient client, String meetupId) {
-        String userId = getUserId(client);
-        client.joinRoom("meetup_" + meetupId);
+        // Nothing from a socket runs until its user is confirmed
+        if (userChecks.hold(client, () -> onJoinMeetup(client, meetupId))) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            String userId = getUserId(client);
+            String sessionId = client.getSessionId().toString();
+
+            SessionRegistry.Join join = sessions.join(sessionId, userId, meetupId);
+            joinCounters.get(join).increment();
+            if (join == SessionRegistry.Join.ALREADY_JOINED) {
+                return;
+            }
+            client.joinRoom("meetup_" + meetupId);
 
-        ActiveUserData userData = new ActiveUserData();
-        userData.setSocketId(client.getSessionId().toString());
-        userData.setMeetupId(meetupId);
-        userData.setLastSeen(new Date());
-        activeUsers.put(userId, userData);
+            SessionRegistry.Session session = sessions.get(sessionId);
+            presenceDirectory.put(meetupId, new PresenceEntry(userId, sessionId, session.getLatitude(),
+                    session.getLongitude(), session.getLastSeen()));
+            locationBroadcaster.join(client, meetupId, userId);
+            // Load the meetup point/settings in the background for geofencing. The meetup may
+            // have a shorter idle timeout than the one currently armed, known once it has loaded.
+            meetupCache.prefetch(meetupId).thenRun(() -> idleSweeper.track(sessionId));
 
-        meetupRooms.computeIfAbsent(meetupId, k -> Collections.synchronizedSet(new HashSet<>())).add(userId);
+            log.debug("User {} joined meetup {}", userId, meetupId);
 
-        System.out.println("User " + userId + " joined meetup " + meetupId);
+            // Another tab or device of a user already in the room is not announced again
+            if (join != SessionRegistry.Join.USER_JOINED) {
+                return;
+            }
 
-        Map<String, Object> notification = new HashMap<>();
-        notification.put("userId", userId);
-        notification.put("timestamp", new Date());
+            Map<String, Object> notification = new HashMap<>();
+            notification.put("userId", userId);
+            notification.put("timestamp", new Date());
 
-        // Broadcast to other users in the room
-        server.getRoomOperations("meetup_" + meetupId)
-                .getClients()
-                .forEach(c -> {
-                    if (!c.getSessionId().equals(client.getSessionId())) {
-                        c.sendEvent("user_joined", notification);
-                    }
-                });
+            // Broadcast to other users in the room
+            roomBroadcaster.broadcastExcept("meetup_" + meetupId, "user_joined", notification, client);
+        } finally {
+            joinTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
     }
 
     @OnEvent("location_update")
     public void onLocationUpdate(SocketIOClient client, LocationUpdateData data) {
-        String userId = getUserId(client);
-        String meetupId = data.getMeetupId();
-
-        if (activeUsers.containsKey(userId)) {
-            ActiveUserData userData = activeUsers.get(userId);
-            userData.setLocation(new Location(data.getLatitude(), data.getLongitude()));
-            userData.setLastSeen(new Date());
-            activeUsers.put(userId, userData);
-        }
-
-        Map<String, Object> broadcastData = new HashMap<>();
-        broadcastData.put("userId", userId);
-        broadcastData.put("latitude", data.getLatitude());
-        broadcastData.put("longitude", data.getLongitude());
-        broadcastData.put("timestamp", new Date());
-
-        server.getRoomOperations("meetup_" + meetupId)
-                .getClients()
-                .forEach(c -> {
-                    if (!c.getSessionId().equals(client.getSessionId())) {
-                        c.sendEvent("location_updated", broadcastData);
-                    }
-                });
+        if (userChecks.hold(client, () -> onLocationUpdate(client, data))) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            String userId = getUserId(client);
+            String meetupId = data.getMeetupId();
+            Double latitude = data.getLatitude();
+            Double longitude = data.getLongitude();
+
+            SessionRegistry.Session session = sessions.get(client.getSessionId().toString());
+            if (session == null) {
+                return;
+            }
+            session.moveTo(latitude, longitude);
+            if (latitude == null || longitude == null) {
+                return;
+            }
+
+            // A fix without a meetup only refreshes presence in the meetups this session is in
+            if (meetupId == null) {
+                for (String target : session.getMeetups()) {
+                    presenceDirectory.put(target, new PresenceEntry(userId, session.getSessionId(),
+                            latitude, longitude, session.getLastSeen()));
+                }
+                return;
+            }
+
+            // Everything below is visible to the meetup's members, so only members may write it
+            if (!sessions.isJoined(session.getSessionId(), meetupId)) {
+                return;
+            }
+
+            presenceDirectory.put(meetupId, new PresenceEntry(userId, session.getSessionId(),
+                    latitude, longitude, session.getLastSeen()));
+            spatialIndex.update(meetupId, userId, latitude, longitude);
+            // Queued for the background writer; never waits on MongoDB
+            historyWriter.offer(meetupId, userId, latitude, longitude, System.currentTimeMillis());
+
+            GeofenceEngine.Transition transition = geofenceEngine.onLocation(meetupId, userId, latitude, longitude);
+            if (transition != GeofenceEngine.Transition.NONE) {
+                Map<String, Object> notification = new HashMap<>();
+                notification.put("meetupId", meetupId);
+                notification.put("userId", userId);
+                notification.put("timestamp", new Date());
+                String event = transition == GeofenceEngine.Transition.ARRIVED
+                        ? "participant_arrived"
+                        : "participant_departed";
+                roomBroadcaster.broadcast("meetup_" + meetupId, event, notification);
+            }
+
+            locationBroadcaster.publish(client, meetupId, userId, latitude, longitude);
+        } finally {
+            locationTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @OnEvent("nearby_users")
+    public void onNearbyUsers(SocketIOClient client, NearbyQueryData query) {
+        if (userChecks.hold(client, () -> onNearbyUsers(client, query))) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            String userId = getUserId(client);
+            String meetupId = query.getMeetupId();
+            touch(client);
+
+            // Only sockets that joined the meetup may see its positions
+            if (meetupId == null || !client.getAllRooms().contains("meetup_" + meetupId)) {
+                return;
+            }
+
+            Double latitude = query.getLatitude();
+            Double longitude = query.getLongitude();
+            if (latitude == null || longitude == null) {
+                // Default to the caller's own last known position
+                SpatialGrid.Position own = spatialIndex.position(meetupId, userId);
+                if (own == null) {
+                    client.sendEvent("nearby_users", Map.of("meetupId", meetupId, "users", Collections.emptyList()));
+                    return;
+                }
+                latitude = own.getLatitude();
+                longitude = own.getLongitude();
+            }
+
+            List<NearbyUser> users = spatialIndex.query(meetupId, latitude, longitude, query.getRadius(), query.getK(),
+                    userId);
+            client.sendEvent("nearby_users", Map.of("meetupId", meetupId, "users", users));
+        } finally {
+            nearbyTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
     }
 
     @OnEvent("leave_meetup")
     public void onLeaveMeetup(SocketIOClient client, String meetupId) {
-        String userId = getUserId(client);
-        handleLeave(client, userId, meetupId);
+        if (userChecks.hold(client, () -> onLeaveMeetup(client, meetupId))) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            String userId = getUserId(client);
+            handleLeave(client, client.getSessionId().toString(), userId, meetupId);
+        } finally {
+            leaveTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
     }
 
     @OnEvent("get_active_users")
     public void onGetActiveUsers(SocketIOClient client, String meetupId) {
-        Set<String> meetupUsers = meetupRooms.getOrDefault(meetupId, new HashSet<>());
-        List<Map<String, Object>> activeUsersData = new ArrayList<>();
+        if (userChecks.hold(client, () -> onGetActiveUsers(client, meetupId))) {
+            return;
+        }
+        touch(client);
+        // Cluster-wide; a user with several sessions is reported once, with the freshest one
+        presenceDirectory.list(meetupId).thenAccept(entries -> {
+            Map<String, PresenceEntry> latestByUser = new HashMap<>();
+            for (PresenceEntry presence : entries) {
+                latestByUser.merge(presence.getUserId(), presence,
+                        (a, b) -> a.getLastSeen() >= b.getLastSeen() ? a : b);
+            }
 
-        for (String uid : meetupUsers) {
-            if (activeUsers.containsKey(uid)) {
-                ActiveUserData userData = activeUsers.get(uid);
+            List<Map<String, Object>> activeUsersData = new ArrayList<>();
+            for (PresenceEntry presence : latestByUser.values()) {
                 Map<String, Object> entry = new HashMap<>();
-                entry.put("userId", uid);
-                entry.put("location", userData.getLocation());
-                entry.put("lastSeen", userData.getLastSeen());
+                entry.put("userId", presence.getUserId());
+                entry.put("location", presence.getLatitude() != null
+                        ? new Location(presence.getLatitude(), presence.getLongitude())
+                        : null);
+                entry.put("lastSeen", new Date(presence.getLastSeen()));
                 activeUsersData.add(entry);
             }
-        }
 
-        client.sendEvent("active_users", activeUsersData);
+            client.sendEvent("active_users", activeUsersData);
+        });
     }
 
     @OnDisconnect
     public void onDisconnect(SocketIOClient client) {
         String userId = getUserId(client);
-        System.out.println("User disconnected: " + userId);
+        log.debug("User disconnected: {}", userId);
+
+        String sessionId = client.getSessionId().toString();
+        userChecks.discard(sessionId);
+        idleSweeper.untrack(sessionId);
+        SessionRegistry.Session session = sessions.get(sessionId);
+        if (session != null) {
+            // Only the meetups this session was in; other sessions of the user stay
+            for (String meetupId : session.getMeetups()) {
+                handleLeave(client, sessionId, userId, meetupId);
+            }
+            sessions.disconnect(sessionId);
+        }
+    }
 
-        if (userId != null && activeUsers.containsKey(userId)) {
-            ActiveUserData userData = activeUsers.get(userId);
-            String meetupId = userData.getMeetupId();
+    private void evictIdle(SessionRegistry.Session session) {
+        log.debug("Evicting idle session {} of user {}", session.getSessionId(), session.getUserId());
 
-            if (meetupId != null) {
-                handleLeave(client, userId, meetupId);
-            }
-            activeUsers.remove(userId);
+        SocketIOClient client = server.getClient(UUID.fromString(session.getSessionId()));
+        if (client != null) {
+            // Still registered with the server; onDisconnect does the cleanup
+            client.disconnect();
+            return;
         }
+
+        // The socket is already gone without a disconnect event
+        for (String meetupId : session.getMeetups()) {
+            handleLeave(null, session.getSessionId(), session.getUserId(), meetupId);
+        }
+        sessions.disconnect(session.getSessionId());
     }
 
-    private void handleLeave(SocketIOClient client, String userId, String meetupId) {
-        client.leaveRoom("meetup_" + meetupId);
+    /** @param client null when evicting a session whose socket is already gone */
+    private void handleLeave(SocketIOClient client, String sessionId, String userId, String meetupId) {
+        if (client != null) {
+            client.leaveRoom("meetup_" + meetupId);
+        }
 
-        Set<String> usersInRoom = meetupRooms.get(meetupId);
-        if (usersInRoom != null) {
-            usersInRoom.remove(userId);
-            if (usersInRoom.isEmpty()) {
-                meetupRooms.remove(meetupId);
-            }
+        SessionRegistry.Session session = sessions.get(sessionId);
+        boolean compact = session != null && session.isCompact();
+        SessionRegistry.Departure departure = sessions.leave(sessionId, userId, meetupId);
+        departureCounters.get(departure).increment();
+        if (departure == SessionRegistry.Departure.NOT_JOINED) {
+            return;
         }
+        boolean userLeft = departure == SessionRegistry.Departure.USER_LEFT;
+
+        presenceDirectory.remove(meetupId, sessionId);
+        locationBroadcaster.leave(client, compact, meetupId, userId, userLeft);
+        if (!userLeft) {
+            return;
+        }
+
+        roomBroadcaster.publishLeft(meetupId, userId);
+        spatialIndex.remove(meetupId, userId);
+        geofenceEngine.remove(meetupId, userId);
 
         Map<String, Object> notification = new HashMap<>();
         notification.put("userId", userId);
         notification.put("timestamp", new Date());
 
-        server.getRoomOperations("meetup_" + meetupId)
-                .getClients()
-                .forEach(c -> {
-                    if (!c.getSessionId().equals(client.getSessionId())) {
-                        c.sendEvent("user_left", notification);
-                    }
-                });
+        if (client != null) {
+            roomBroadcaster.broadcastExcept("meetup_" + meetupId, "user_left", notification, client);
+        } else {
+            roomBroadcaster.broadcast("meetup_" + meetupId, "user_left", notification);
+        }
+
+        log.debug("User {} left meetup {}", userId, meetupId);
+    }
 
-        System.out.println("User " + userId + " left meetup " + meetupId);
+    private void onRemoteMessage(ClusterMessage message) {
+        String meetupId = message.getMeetupId();
+        String userId = message.getUserId();
+        if (ClusterMessage.LOCATION.equals(message.getType())) {
+            if (message.getLatitude() == null || message.getLongitude() == null) {
+                return;
+            }
+            // Keep nearby_users cluster-wide for meetups that have members on this node
+            if (locationBroadcaster.acceptRemote(meetupId, userId, message.getLatitude(), message.getLongitude(),
+                    message.getTimestamp())) {
+                spatialIndex.update(meetupId, userId, message.getLatitude(), message.getLongitude());
+            }
+        } else if (ClusterMessage.LEFT.equals(message.getType())) {
+            // The user may still be in the meetup through a session on this node
+            if (sessions.members(meetupId).contains(userId)) {
+                return;
+            }
+            locationBroadcaster.forgetRemote(meetupId, userId);
+            spatialIndex.remove(meetupId, userId);
+        }
     }
 
     // --- DTOs ---
 
-    public static class ActiveUserData {
-        private String socketId;
+    public static class LocationUpdateData {
+        private Double latitude;
+        private Double longitude;
         private String meetupId;
-        private Location location;
-        private Date lastSeen;
 
-        public String getSocketId() {
-            return socketId;
+        public Double getLatitude() {
+            return latitude;
         }
 
-        public void setSocketId(String socketId) {
-            this.socketId = socketId;
+        public void setLatitude(Double latitude) {
+            this.latitude = latitude;
+        }
+
+        public Double getLongitude() {
+            return longitude;
+        }
+
+        public void setLongitude(Double longitude) {
+            this.longitude = longitude;
         }
 
         public String getMeetupId() {
@@ -187,28 +445,22 @@ public class SocketHandler {
         public void setMeetupId(String meetupId) {
             this.meetupId = meetupId;
         }
+    }
 
-        public Location getLocation() {
-            return location;
-        }
-
-        public void setLocation(Location location) {
-            this.location = location;
-        }
+    public static class NearbyQueryData {
+        private String meetupId;
+        private Double latitude;
+        private Double longitude;
+        private Double radius;
+        private Integer k;
 
-        public Date getLastSeen() {
-            return lastSeen;
+        public String getMeetupId() {
+            return meetupId;
         }
 
-        public void setLastSeen(Date lastSeen) {
-            this.lastSeen = lastSeen;
+        public void setMeetupId(String meetupId) {
+            this.meetupId = meetupId;
         }
-    }
-
-    public static class LocationUpdateData {
-        private Double latitude;
-        private Double longitude;
-        private String meetupId;
 
         public Double getLatitude() {
             return latitude;
@@ -226,12 +478,20 @@ public class SocketHandler {
             this.longitude = longitude;
         }
 
-        public String getMeetupId() {
-            return meetupId;
+        public Double getRadius() {
+            return radius;
         }
 
-        public void setMeetupId(String meetupId) {
-            this.meetupId = meetupId;
+        public void setRadius(Double radius) {
+            this.radius = radius;
+        }
+
+        public Integer getK() {
+            return k;
+        }
+
+        public void setK(Integer k) {
+            this.k = k;
         }
     }
 
@@ -3,29 +3,41 @@ package com.trulo.trulomeetuptracker.socket;
 import com.corundumstudio.socketio.AuthorizationListener;
 import com.corundumstudio.socketio.HandshakeData;
 import com.corundumstudio.socketio.SocketConfig;
+import com.corundumstudio.socketio.SocketIOClient;
 import com.corundumstudio.socketio.SocketIOServer;
 import com.corundumstudio.socketio.annotation.SpringAnnotationScanner;
-import com.trulo.trulomeetuptracker.model.User;
-import com.trulo.trulomeetuptracker.repository.UserRepository;
 import com.trulo.trulomeetuptracker.security.JwtUtil;
+import com.trulo.trulomeetuptracker.security.PrincipalCache;
+import com.trulo.trulomeetuptracker.security.VerifiedToken;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.Collections;
 import java.util.Optional;
 
 @Configuration
 public class SocketIOConfig {
 
+    // Set on handshakes accepted before the user was found in the principal cache
+    static final String PENDING_USER_CHECK = "pendingUserCheck";
+
     @Value("${server.port:5000}")
     private int port;
 
+    // Also how often presence entries are kept alive (see SocketHandler#onHeartbeat)
+    @Value("${socket.ping-interval-ms:25000}")
+    private int pingInterval;
+
     @Autowired
     private JwtUtil jwtUtil;
 
     @Autowired
-    private UserRepository userRepository;
+    private PrincipalCache principalCache;
+
+    @Autowired
+    private PendingUserChecks pendingUserChecks;
 
     @Bean
     public SocketIOServer socketIOServer() {
@@ -35,11 +47,13 @@ public class SocketIOConfig {
         // matching the React client's configured REACT_APP_SOCKET_URL port expectation.
         config.setPort(port + 1);
         config.setOrigin("http://localhost:3000,http://127.0.0.1:3000");
+        config.setPingInterval(pingInterval);
 
         SocketConfig socketConfig = new SocketConfig();
         socketConfig.setReuseAddress(true);
         config.setSocketConfig(socketConfig);
 
+        // Runs on the Netty event loop, so it must never wait on MongoDB.
         config.setAuthorizationListener(new AuthorizationListener() {
             @Override
             public boolean isAuthorized(HandshakeData data) {
@@ -57,24 +71,37 @@ public class SocketIOConfig {
                     return false;
                 }
 
-                try {
-                    String userId = jwtUtil.extractUserId(token);
-                    if (userId != null && jwtUtil.validateToken(token)) {
-                        Optional<User> user = userRepository.findById(userId);
-                        if (user.isPresent()) {
-                            // Store userId in urlParams so handler can access it
-                            data.getUrlParams().put("userId", java.util.Collections.singletonList(userId));
-                            return true;
-                        }
-                    }
-                } catch (Exception e) {
+                Optional<VerifiedToken> verified = jwtUtil.verify(token);
+                if (verified.isEmpty()) {
                     return false;
                 }
-                return false;
+
+                String userId = verified.get().getUserId();
+                // Store userId in urlParams so handler can access it
+                data.getUrlParams().put("userId", Collections.singletonList(userId));
+
+                // A signed token is enough to accept the handshake; unknown users are
+                // confirmed off the I/O threads once connected, and their events are held
+                // until then (see confirmUser).
+                if (principalCache.getIfPresent(userId) == null) {
+                    data.getUrlParams().put(PENDING_USER_CHECK, Collections.singletonList("true"));
+                }
+                return true;
             }
         });
 
-        return new SocketIOServer(config);
+        SocketIOServer server = new SocketIOServer(config);
+        server.addConnectListener(this::confirmUser);
+        return server;
+    }
+
+    private void confirmUser(SocketIOClient client) {
+        HandshakeData data = client.getHandshakeData();
+        if (data.getSingleUrlParam(PENDING_USER_CHECK) == null) {
+            return;
+        }
+
+        pendingUserChecks.begin(client, data.getSingleUrlParam("userId"));
     }
 
     @Bean
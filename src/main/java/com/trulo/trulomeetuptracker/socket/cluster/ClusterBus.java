@@ -0,0 +1,15 @@
+package com.trulo.trulomeetuptracker.socket.cluster;
+
+import java.util.function.Consumer;
+
+/**
+ * Pub/sub channel between Socket.IO nodes. Every published message is delivered to every
+ * subscriber, including the publishing node, which is expected to skip its own messages by
+ * {@link ClusterMessage#getNodeId()}.
+ */
+public interface ClusterBus {
+
+    void publish(ClusterMessage message);
+
+    void subscribe(Consumer<ClusterMessage> listener);
+}
@@ -0,0 +1,67 @@
+package com.trulo.trulomeetuptracker.socket.cluster;
+
+import org.redisson.Redisson;
+import org.redisson.api.RedissonClient;
+import org.redisson.config.Config;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Selects the socket cluster backend with {@code socket.cluster.mode}:
+ * {@code local} (default, single node) or {@code redis} (Redis pub/sub and shared presence).
+ */
+@Configuration
+public class ClusterConfig {
+
+    @Configuration
+    @ConditionalOnProperty(name = "socket.cluster.mode", havingValue = "local", matchIfMissing = true)
+    static class Local {
+
+        @Bean
+        public ClusterBus clusterBus() {
+            return new LocalClusterBus();
+        }
+
+        @Bean
+        public PresenceDirectory presenceDirectory() {
+            return new LocalPresenceDirectory();
+        }
+    }
+
+    @Configuration
+    @ConditionalOnProperty(name = "socket.cluster.mode", havingValue = "redis")
+    static class Redis {
+
+        @Value("${socket.cluster.redis-address:redis://localhost:6379}")
+        private String redisAddress;
+
+        @Value("${socket.cluster.channel:trulo:socket}")
+        private String channel;
+
+        @Value("${socket.cluster.presence-ttl-ms:120000}")
+        private long presenceTtlMillis;
+
+        @Value("${socket.cluster.presence-refresh-ms:5000}")
+        private long presenceRefreshMillis;
+
+        @Bean(destroyMethod = "shutdown")
+        public RedissonClient redissonClient() {
+            Config config = new Config();
+            config.useSingleServer().setAddress(redisAddress);
+            return Redisson.create(config);
+        }
+
+        @Bean
+        public ClusterBus clusterBus(RedissonClient redisson) {
+            return new RedisClusterBus(redisson, channel);
+        }
+
+        @Bean
+        public PresenceDirectory presenceDirectory(RedissonClient redisson) {
+            return new RedisPresenceDirectory(redisson, channel + ":presence:", presenceTtlMillis,
+                    presenceRefreshMillis);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.trulo.trulomeetuptracker.socket.cluster;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Message carried by the {@link ClusterBus}. Flat so it serializes the same way on every bus.
+ *
+ * EVENT: a room event already encoded as JSON, replayed to the room's local clients.
+ * LOCATION: a raw location fix, coalesced and encoded by each node for its own clients.
+ * LEFT: a user left a meetup on another node, so its last fix is dropped everywhere.
+ */
+@Data
+@NoArgsConstructor
+public class ClusterMessage {
+
+    public static final String EVENT = "event";
+    public static final String LOCATION = "location";
+    public static final String LEFT = "left";
+
+    private String type;
+    private String nodeId;
+
+    // EVENT
+    private String room;
+    private String event;
+    private String json;
+
+    // LOCATION / LEFT
+    private String meetupId;
+    private String userId;
+    private Double latitude;
+    private Double longitude;
+    private long timestamp;
+
+    public static ClusterMessage event(String nodeId, String room, String event, String json) {
+        ClusterMessage message = new ClusterMessage();
+        message.setType(EVENT);
+        message.setNodeId(nodeId);
+        message.setRoom(room);
+        message.setEvent(event);
+        message.setJson(json);
+        return message;
+    }
+
+    public static ClusterMessage location(String nodeId, String meetupId, String userId, Double latitude,
+            Double longitude, long timestamp) {
+        ClusterMessage message = new ClusterMessage();
+        message.setType(LOCATION);
+        message.setNodeId(nodeId);
+        message.setMeetupId(meetupId);
+        message.setUserId(userId);
+        message.setLatitude(latitude);
+        message.setLongitude(longitude);
+        message.setTimestamp(timestamp);
+        return message;
+    }
+
+    public static ClusterMessage left(String nodeId, String meetupId, String userId) {
+        ClusterMessage message = new ClusterMessage();
+        message.setType(LEFT);
+        message.setNodeId(nodeId);
+        message.setMeetupId(meetupId);
+        message.setUserId(userId);
+        return message;
+    }
+}
@@ -0,0 +1,26 @@
+package com.trulo.trulomeetuptracker.socket.cluster;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * In-process bus. With a single node it only echoes back to that node; several servers in one
+ * JVM can share one instance to behave like a cluster.
+ */
+public class LocalClusterBus implements ClusterBus {
+
+    private final List<Consumer<ClusterMessage>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(ClusterMessage message) {
+        for (Consumer<ClusterMessage> listener : listeners) {
+            listener.accept(message);
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<ClusterMessage> listener) {
+        listeners.add(listener);
+    }
+}
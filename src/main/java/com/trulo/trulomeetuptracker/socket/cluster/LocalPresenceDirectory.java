@@ -0,0 +1,43 @@
+package com.trulo.trulomeetuptracker.socket.cluster;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class LocalPresenceDirectory implements PresenceDirectory {
+
+    // Map: meetupId -> sessionId -> entry
+    private final Map<String, Map<String, PresenceEntry>> meetups = new ConcurrentHashMap<>();
+
+    @Override
+    public void put(String meetupId, PresenceEntry entry) {
+        meetups.compute(meetupId, (k, sessions) -> {
+            Map<String, PresenceEntry> target = sessions != null ? sessions : new ConcurrentHashMap<>();
+            target.put(entry.getSessionId(), entry);
+            return target;
+        });
+    }
+
+    @Override
+    public void refresh(String meetupId, String sessionId) {
+        // Entries never expire locally
+    }
+
+    @Override
+    public void remove(String meetupId, String sessionId) {
+        meetups.computeIfPresent(meetupId, (k, sessions) -> {
+            sessions.remove(sessionId);
+            return sessions.isEmpty() ? null : sessions;
+        });
+    }
+
+    @Override
+    public CompletionStage<List<PresenceEntry>> list(String meetupId) {
+        Map<String, PresenceEntry> sessions = meetups.get(meetupId);
+        List<PresenceEntry> entries = sessions != null ? new ArrayList<>(sessions.values()) : new ArrayList<>();
+        return CompletableFuture.completedFuture(entries);
+    }
+}
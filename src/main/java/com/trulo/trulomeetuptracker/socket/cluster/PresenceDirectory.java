@@ -0,0 +1,20 @@
+package com.trulo.trulomeetuptracker.socket.cluster;
+
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Cluster-wide view of who is present in each meetup, keyed by socket session so several
+ * devices of one user (possibly on different nodes) don't overwrite each other.
+ */
+public interface PresenceDirectory {
+
+    void put(String meetupId, PresenceEntry entry);
+
+    /** Keeps a live session's entry from expiring without changing it; a no-op once it is gone. */
+    void refresh(String meetupId, String sessionId);
+
+    void remove(String meetupId, String sessionId);
+
+    CompletionStage<List<PresenceEntry>> list(String meetupId);
+}
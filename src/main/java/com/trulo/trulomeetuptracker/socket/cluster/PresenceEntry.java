@@ -0,0 +1,19 @@
+package com.trulo.trulomeetuptracker.socket.cluster;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One socket session's presence in a meetup, as shared between nodes.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PresenceEntry {
+    private String userId;
+    private String sessionId;
+    private Double latitude;
+    private Double longitude;
+    private long lastSeen; // epoch millis
+}
@@ -0,0 +1,29 @@
+package com.trulo.trulomeetuptracker.socket.cluster;
+
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.codec.TypedJsonJacksonCodec;
+
+import java.util.function.Consumer;
+
+/**
+ * Redis pub/sub bus. Publishing is asynchronous so socket threads never wait on Redis.
+ */
+public class RedisClusterBus implements ClusterBus {
+
+    private final RTopic topic;
+
+    public RedisClusterBus(RedissonClient redisson, String channel) {
+        this.topic = redisson.getTopic(channel, new TypedJsonJacksonCodec(ClusterMessage.class));
+    }
+
+    @Override
+    public void publish(ClusterMessage message) {
+        topic.publishAsync(message);
+    }
+
+    @Override
+    public void subscribe(Consumer<ClusterMessage> listener) {
+        topic.addListener(ClusterMessage.class, (channel, message) -> listener.accept(message));
+    }
+}
@@ -0,0 +1,85 @@
+package com.trulo.trulomeetuptracker.socket.cluster;
+
+import org.redisson.api.RMapCache;
+import org.redisson.api.RedissonClient;
+import org.redisson.codec.TypedJsonJacksonCodec;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Presence stored in one Redis map per meetup. Entries carry a TTL so sessions of a crashed
+ * node disappear on their own; live sessions extend it on every heartbeat (see
+ * {@link #refresh}), so a member who is connected but not moving stays listed. Location
+ * refreshes and TTL extensions of an entry are throttled per session.
+ */
+public class RedisPresenceDirectory implements PresenceDirectory {
+
+    private final RedissonClient redisson;
+    private final String keyPrefix;
+    private final long ttlMillis;
+    private final long refreshMillis;
+    private final TypedJsonJacksonCodec codec = new TypedJsonJacksonCodec(String.class, PresenceEntry.class);
+
+    // Map: meetupId:sessionId -> last write time, to throttle refreshes
+    private final Map<String, Long> lastWrite = new ConcurrentHashMap<>();
+    // Map: meetupId:sessionId -> last time the TTL was set, by a write or a refresh
+    private final Map<String, Long> lastExtended = new ConcurrentHashMap<>();
+
+    public RedisPresenceDirectory(RedissonClient redisson, String keyPrefix, long ttlMillis, long refreshMillis) {
+        this.redisson = redisson;
+        this.keyPrefix = keyPrefix;
+        this.ttlMillis = ttlMillis;
+        this.refreshMillis = refreshMillis;
+    }
+
+    @Override
+    public void put(String meetupId, PresenceEntry entry) {
+        String writeKey = meetupId + ":" + entry.getSessionId();
+        if (entry.getLatitude() == null) {
+            // Joins are always written; the first fix after them too
+            lastWrite.remove(writeKey);
+        } else {
+            Long previous = lastWrite.get(writeKey);
+            if (previous != null && entry.getLastSeen() - previous < refreshMillis) {
+                return;
+            }
+            lastWrite.put(writeKey, entry.getLastSeen());
+        }
+        lastExtended.put(writeKey, System.currentTimeMillis());
+        map(meetupId).fastPutAsync(entry.getSessionId(), entry, ttlMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void refresh(String meetupId, String sessionId) {
+        String writeKey = meetupId + ":" + sessionId;
+        long now = System.currentTimeMillis();
+        Long previous = lastExtended.get(writeKey);
+        if (previous != null && now - previous < refreshMillis) {
+            return;
+        }
+        lastExtended.put(writeKey, now);
+        // Only touches the TTL, so an entry removed meanwhile is not brought back
+        map(meetupId).updateEntryExpirationAsync(sessionId, ttlMillis, TimeUnit.MILLISECONDS, 0, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void remove(String meetupId, String sessionId) {
+        lastWrite.remove(meetupId + ":" + sessionId);
+        lastExtended.remove(meetupId + ":" + sessionId);
+        map(meetupId).fastRemoveAsync(sessionId);
+    }
+
+    @Override
+    public CompletionStage<List<PresenceEntry>> list(String meetupId) {
+        return map(meetupId).readAllValuesAsync().thenApply(ArrayList::new);
+    }
+
+    private RMapCache<String, PresenceEntry> map(String meetupId) {
+        return redisson.getMapCache(keyPrefix + meetupId, codec);
+    }
+}
@@ -0,0 +1,79 @@
+package com.trulo.trulomeetuptracker.tracking;
+
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.trulo.trulomeetuptracker.repository.MeetupRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Snapshots of meetups that have live sockets, loaded asynchronously so socket threads never
+ * wait on MongoDB. Callers on the hot path use {@link #getIfReady(String)} and skip work
+ * until the snapshot has arrived.
+ */
+@Component
+public class ActiveMeetupCache {
+
+    @Value("${tracking.meetup-cache.max-size:10000}")
+    private long maxSize;
+
+    @Value("${tracking.meetup-cache.ttl:3600000}")
+    private long ttl;
+
+    @Autowired
+    private MeetupRepository meetupRepository;
+
+    private ExecutorService loadExecutor;
+
+    private AsyncLoadingCache<String, MeetupSnapshot> snapshots;
+
+    @PostConstruct
+    public void init() {
+        this.loadExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "meetup-snapshot-loader");
+            t.setDaemon(true);
+            return t;
+        });
+        this.snapshots = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterAccess(Duration.ofMillis(ttl))
+                .executor(loadExecutor)
+                .buildAsync(id -> meetupRepository.findTrackingSnapshotById(id)
+                        .map(MeetupSnapshot::of)
+                        .orElse(MeetupSnapshot.missing(id)));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        loadExecutor.shutdownNow();
+    }
+
+    /**
+     * Starts loading the snapshot if it isn't cached yet.
+     *
+     * @return completes with the snapshot once it is loaded, on the loader thread
+     */
+    public CompletableFuture<MeetupSnapshot> prefetch(String meetupId) {
+        return snapshots.get(meetupId);
+    }
+
+    public MeetupSnapshot getIfReady(String meetupId) {
+        CompletableFuture<MeetupSnapshot> future = snapshots.get(meetupId);
+        if (!future.isDone() || future.isCompletedExceptionally()) {
+            return null;
+        }
+        return future.getNow(null);
+    }
+
+    public void invalidate(String meetupId) {
+        snapshots.synchronous().invalidate(meetupId);
+    }
+}
@@ -0,0 +1,23 @@
+package com.trulo.trulomeetuptracker.tracking;
+
+public final class GeoUtils {
+
+    public static final double EARTH_RADIUS_M = 6_371_000d;
+    public static final double METERS_PER_DEGREE_LAT = 111_320d;
+
+    private GeoUtils() {
+    }
+
+    public static double distanceMeters(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS_M * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    public static double metersPerDegreeLng(double latitude) {
+        return METERS_PER_DEGREE_LAT * Math.max(0.01, Math.cos(Math.toRadians(latitude)));
+    }
+}
@@ -0,0 +1,70 @@
+package com.trulo.trulomeetuptracker.tracking;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Arrival detection for meetups with {@code settings.notifyOnArrival}. Each location update is
+ * checked against the cached meetup point in O(1), without touching MongoDB.
+ *
+ * A participant arrives when they come within the arrival radius and only departs once they
+ * are beyond the (larger) departure radius, so GPS jitter at the boundary doesn't flap.
+ */
+@Component
+public class GeofenceEngine {
+
+    public enum Transition {
+        NONE, ARRIVED, DEPARTED
+    }
+
+    @Value("${tracking.geofence.arrival-radius-m:100}")
+    private double arrivalRadiusMeters;
+
+    @Value("${tracking.geofence.departure-radius-m:150}")
+    private double departureRadiusMeters;
+
+    @Autowired
+    private ActiveMeetupCache meetupCache;
+
+    // Map: meetupId -> userIds currently inside the geofence
+    private final Map<String, Set<String>> arrived = new ConcurrentHashMap<>();
+
+    public Transition onLocation(String meetupId, String userId, double latitude, double longitude) {
+        MeetupSnapshot meetup = meetupCache.getIfReady(meetupId);
+        if (meetup == null || !meetup.isNotifyOnArrival() || !meetup.hasPoint()) {
+            return Transition.NONE;
+        }
+
+        double distance = meetup.distanceMeters(latitude, longitude);
+        if (distance > arrivalRadiusMeters && distance <= departureRadiusMeters) {
+            return Transition.NONE; // inside the hysteresis band nothing changes
+        }
+
+        Transition[] transition = { Transition.NONE };
+        // compute() keeps this atomic with remove() dropping an emptied set
+        arrived.compute(meetupId, (k, inside) -> {
+            Set<String> users = inside != null ? inside : ConcurrentHashMap.newKeySet();
+            if (distance <= arrivalRadiusMeters) {
+                if (users.add(userId)) {
+                    transition[0] = Transition.ARRIVED;
+                }
+            } else if (users.remove(userId)) {
+                transition[0] = Transition.DEPARTED;
+            }
+            return users.isEmpty() ? null : users;
+        });
+        return transition[0];
+    }
+
+    public void remove(String meetupId, String userId) {
+        arrived.computeIfPresent(meetupId, (k, inside) -> {
+            inside.remove(userId);
+            return inside.isEmpty() ? null : inside;
+        });
+    }
+}
@@ -0,0 +1,224 @@
+package com.trulo.trulomeetuptracker.tracking;
+
+import com.trulo.trulomeetuptracker.model.LocationHistory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Write-behind pipeline for location history. {@link #offer} never blocks: fixes go into a
+ * bounded lock-free queue and are dropped (and counted) when it is full. A background writer
+ * drains the queue and upserts them into per-user, per-minute {@link LocationHistory}
+ * buckets with one unordered bulk write per batch.
+ */
+@Component
+public class LocationHistoryWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(LocationHistoryWriter.class);
+
+    private static final long BUCKET_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    @Value("${tracking.history.enabled:true}")
+    private boolean enabled;
+
+    @Value("${tracking.history.queue-capacity:100000}")
+    private int queueCapacity;
+
+    @Value("${tracking.history.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${tracking.history.flush-ms:1000}")
+    private long flushMs;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private final ConcurrentLinkedQueue<HistoryPoint> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queueSize = new AtomicInteger();
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    private volatile boolean running;
+    private Thread writer;
+    // Only touched by the writer thread
+    private boolean failing;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        writer = new Thread(this::run, "location-history-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (writer != null) {
+            LockSupport.unpark(writer);
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    /** @return false if the fix was dropped because the queue is full */
+    public boolean offer(String meetupId, String userId, double latitude, double longitude, long timestamp) {
+        if (!enabled) {
+            return false;
+        }
+        if (queueSize.incrementAndGet() > queueCapacity) {
+            queueSize.decrementAndGet();
+            dropped.incrementAndGet();
+            return false;
+        }
+        queue.offer(new HistoryPoint(meetupId, userId, latitude, longitude, timestamp));
+        enqueued.incrementAndGet();
+        return true;
+    }
+
+    private void run() {
+        long flushNanos = TimeUnit.MILLISECONDS.toNanos(flushMs);
+        List<HistoryPoint> batch = new ArrayList<>(batchSize);
+
+        while (running || !queue.isEmpty()) {
+            HistoryPoint point;
+            while (batch.size() < batchSize && (point = queue.poll()) != null) {
+                queueSize.decrementAndGet();
+                batch.add(point);
+            }
+
+            if (!batch.isEmpty()) {
+                write(batch);
+                batch.clear();
+            }
+
+            // Keep draining while there's a backlog, otherwise wait for the next flush
+            if (queueSize.get() < batchSize && running) {
+                LockSupport.parkNanos(flushNanos);
+            }
+        }
+    }
+
+    private void write(List<HistoryPoint> batch) {
+        // Group by (meetupId, userId, minute) preserving arrival order
+        Map<BucketKey, List<LocationHistory.Point>> buckets = new LinkedHashMap<>();
+        for (HistoryPoint p : batch) {
+            BucketKey key = new BucketKey(p.meetupId, p.userId, p.timestamp - (p.timestamp % BUCKET_MILLIS));
+            buckets.computeIfAbsent(key, k -> new ArrayList<>())
+                    .add(new LocationHistory.Point(p.latitude, p.longitude, new Date(p.timestamp)));
+        }
+
+        try {
+            BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, LocationHistory.class);
+            for (Map.Entry<BucketKey, List<LocationHistory.Point>> entry : buckets.entrySet()) {
+                BucketKey key = entry.getKey();
+                Query query = new Query(Criteria.where("meetupId").is(key.meetupId)
+                        .and("userId").is(key.userId)
+                        .and("bucket").is(new Date(key.bucket)));
+                Update update = new Update()
+                        .push("points").each(entry.getValue().toArray())
+                        .inc("count", entry.getValue().size());
+                ops.upsert(query, update);
+            }
+            ops.execute();
+            written.addAndGet(batch.size());
+            if (failing) {
+                failing = false;
+                log.info("Location history writes recovered");
+            }
+        } catch (RuntimeException e) {
+            // trulo.history.points{state=failed} counts every lost point; log once per outage
+            failed.addAndGet(batch.size());
+            if (!failing) {
+                failing = true;
+                log.warn("Location history write failed, dropping {} points", batch.size(), e);
+            }
+        }
+    }
+
+    public long getEnqueued() {
+        return enqueued.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public long getWritten() {
+        return written.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public int getQueueSize() {
+        return queueSize.get();
+    }
+
+    private static final class HistoryPoint {
+        final String meetupId;
+        final String userId;
+        final double latitude;
+        final double longitude;
+        final long timestamp;
+
+        HistoryPoint(String meetupId, String userId, double latitude, double longitude, long timestamp) {
+            this.meetupId = meetupId;
+            this.userId = userId;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.timestamp = timestamp;
+        }
+    }
+
+    private static final class BucketKey {
+        final String meetupId;
+        final String userId;
+        final long bucket;
+
+        BucketKey(String meetupId, String userId, long bucket) {
+            this.meetupId = meetupId;
+            this.userId = userId;
+            this.bucket = bucket;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof BucketKey)) {
+                return false;
+            }
+            BucketKey other = (BucketKey) o;
+            return bucket == other.bucket && meetupId.equals(other.meetupId) && userId.equals(other.userId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(meetupId, userId, bucket);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.trulo.trulomeetuptracker.tracking;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trulo.trulomeetuptracker.model.LocationHistory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.*;
+
+/**
+ * Streams a meetup's recorded movements as NDJSON in time order, straight from a MongoDB
+ * cursor over {@code location_history}. Only one minute of buckets is held in memory at a
+ * time, to interleave the participants' points.
+ */
+@Component
+public class LocationReplay {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    public void stream(String meetupId, double toleranceMeters, long maxGapMillis, OutputStream out)
+            throws IOException {
+        Query query = new Query(Criteria.where("meetupId").is(meetupId))
+                .with(Sort.by(Sort.Order.asc("bucket"), Sort.Order.asc("userId")));
+        TrajectorySimplifier simplifier = new TrajectorySimplifier(toleranceMeters, maxGapMillis);
+
+        try (CloseableIterator<LocationHistory> cursor = mongoTemplate.stream(query, LocationHistory.class)) {
+            List<LocationHistory> minute = new ArrayList<>();
+            while (cursor.hasNext()) {
+                LocationHistory bucket = cursor.next();
+                if (!minute.isEmpty() && !minute.get(0).getBucket().equals(bucket.getBucket())) {
+                    writeMinute(minute, simplifier, out);
+                    minute.clear();
+                }
+                minute.add(bucket);
+            }
+            writeMinute(minute, simplifier, out);
+        }
+    }
+
+    private void writeMinute(List<LocationHistory> minute, TrajectorySimplifier simplifier, OutputStream out)
+            throws IOException {
+        for (ReplayPoint point : simplifyMinute(minute, simplifier)) {
+            out.write(objectMapper.writeValueAsBytes(point));
+            out.write('\n');
+        }
+        out.flush();
+    }
+
+    // One minute of buckets, interleaved in time order and passed through the simplifier
+    static List<ReplayPoint> simplifyMinute(List<LocationHistory> minute, TrajectorySimplifier simplifier) {
+        List<ReplayPoint> points = new ArrayList<>();
+        for (LocationHistory bucket : minute) {
+            for (LocationHistory.Point p : bucket.getPoints()) {
+                points.add(new ReplayPoint(bucket.getUserId(), p.getLatitude(), p.getLongitude(), p.getTimestamp()));
+            }
+        }
+        points.sort(Comparator.comparing(ReplayPoint::getTimestamp));
+
+        List<ReplayPoint> accepted = new ArrayList<>(points.size());
+        for (ReplayPoint point : points) {
+            if (simplifier.accept(point.getUserId(), point.getLatitude(), point.getLongitude(),
+                    point.getTimestamp().getTime())) {
+                accepted.add(point);
+            }
+        }
+        return accepted;
+    }
+
+    public static final class ReplayPoint {
+        private final String userId;
+        private final double latitude;
+        private final double longitude;
+        private final Date timestamp;
+
+        ReplayPoint(String userId, double latitude, double longitude, Date timestamp) {
+            this.userId = userId;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.timestamp = timestamp;
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        public double getLatitude() {
+            return latitude;
+        }
+
+        public double getLongitude() {
+            return longitude;
+        }
+
+        public Date getTimestamp() {
+            return timestamp;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.trulo.trulomeetuptracker.tracking;
+
+import com.trulo.trulomeetuptracker.model.Meetup;
+
+/**
+ * Immutable in-memory copy of the meetup fields needed on the location hot path.
+ */
+public final class MeetupSnapshot {
+
+    private final String meetupId;
+    private final boolean hasPoint;
+    private final double latitude;
+    private final double longitude;
+    private final double metersPerDegreeLng;
+    private final boolean notifyOnArrival;
+    private final long idleTimeoutMillis; // 0 = server default
+
+    private MeetupSnapshot(String meetupId, Double latitude, Double longitude, boolean notifyOnArrival,
+            long idleTimeoutMillis) {
+        this.meetupId = meetupId;
+        this.hasPoint = latitude != null && longitude != null;
+        this.latitude = hasPoint ? latitude : 0;
+        this.longitude = hasPoint ? longitude : 0;
+        this.metersPerDegreeLng = hasPoint ? GeoUtils.metersPerDegreeLng(latitude) : 0;
+        this.notifyOnArrival = notifyOnArrival;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    public static MeetupSnapshot of(Meetup meetup) {
+        Meetup.Coordinates point = meetup.getLocation() != null ? meetup.getLocation().getCoordinates() : null;
+        boolean notify = meetup.getSettings() == null || meetup.getSettings().isNotifyOnArrival();
+        Integer idleSeconds = meetup.getSettings() != null ? meetup.getSettings().getIdleTimeoutSeconds() : null;
+        return new MeetupSnapshot(meetup.getId(),
+                point != null ? point.getLatitude() : null,
+                point != null ? point.getLongitude() : null,
+                notify,
+                idleSeconds != null && idleSeconds > 0 ? idleSeconds * 1000L : 0);
+    }
+
+    /** Cached for ids with no meetup behind them, so they don't cause repeated lookups. */
+    public static MeetupSnapshot missing(String meetupId) {
+        return new MeetupSnapshot(meetupId, null, null, false, 0);
+    }
+
+    public String getMeetupId() {
+        return meetupId;
+    }
+
+    public boolean hasPoint() {
+        return hasPoint;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public boolean isNotifyOnArrival() {
+        return notifyOnArrival;
+    }
+
+    /** Per-meetup idle timeout for live sessions, or 0 to use the server default. */
+    public long getIdleTimeoutMillis() {
+        return idleTimeoutMillis;
+    }
+
+    /** Equirectangular distance to the meetup point; accurate to well under a metre at geofence scale. */
+    public double distanceMeters(double lat, double lng) {
+        double dy = (lat - latitude) * GeoUtils.METERS_PER_DEGREE_LAT;
+        double dx = (lng - longitude) * metersPerDegreeLng;
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+}
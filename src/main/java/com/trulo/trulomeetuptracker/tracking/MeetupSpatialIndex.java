@@ -0,0 +1,83 @@
+package com.trulo.trulomeetuptracker.tracking;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Live participant positions per meetup, indexed by {@link SpatialGrid}.
+ * Updated incrementally from socket location updates.
+ */
+@Component
+public class MeetupSpatialIndex {
+
+    @Value("${tracking.spatial.cell-size-m:100}")
+    private double cellSizeMeters;
+
+    @Value("${tracking.spatial.default-radius-m:1000}")
+    private double defaultRadiusMeters;
+
+    @Value("${tracking.spatial.max-radius-m:50000}")
+    private double maxRadiusMeters;
+
+    @Value("${tracking.spatial.max-results:100}")
+    private int maxResults;
+
+    // Map: meetupId -> grid
+    private final Map<String, SpatialGrid> grids = new ConcurrentHashMap<>();
+
+    public void update(String meetupId, String userId, double latitude, double longitude) {
+        long now = System.currentTimeMillis();
+        // compute() keeps this atomic with remove() dropping an emptied grid
+        grids.compute(meetupId, (k, grid) -> {
+            SpatialGrid target = grid != null ? grid : new SpatialGrid(cellSizeMeters);
+            target.update(userId, latitude, longitude, now);
+            return target;
+        });
+    }
+
+    public void remove(String meetupId, String userId) {
+        grids.computeIfPresent(meetupId, (k, grid) -> {
+            grid.remove(userId);
+            return grid.isEmpty() ? null : grid;
+        });
+    }
+
+    public SpatialGrid.Position position(String meetupId, String userId) {
+        SpatialGrid grid = grids.get(meetupId);
+        return grid != null ? grid.position(userId) : null;
+    }
+
+    /**
+     * k-nearest when {@code k} is given (within {@code radius} if also given), otherwise everyone
+     * within {@code radius} or the default radius. Both are capped by the configured limits.
+     */
+    public List<NearbyUser> query(String meetupId, double latitude, double longitude, Double radius, Integer k,
+            String excludeUserId) {
+        double radiusMeters = radius != null ? Math.min(radius, maxRadiusMeters)
+                : k != null ? maxRadiusMeters : defaultRadiusMeters;
+
+        if (k != null) {
+            return nearest(meetupId, latitude, longitude, Math.min(k, maxResults), radiusMeters, excludeUserId);
+        }
+
+        List<NearbyUser> result = withinRadius(meetupId, latitude, longitude, radiusMeters, excludeUserId);
+        return result.size() > maxResults ? new ArrayList<>(result.subList(0, maxResults)) : result;
+    }
+
+    public List<NearbyUser> withinRadius(String meetupId, double latitude, double longitude, double radiusMeters,
+            String excludeUserId) {
+        SpatialGrid grid = grids.get(meetupId);
+        return grid != null ? grid.withinRadius(latitude, longitude, radiusMeters, excludeUserId) : new ArrayList<>();
+    }
+
+    public List<NearbyUser> nearest(String meetupId, double latitude, double longitude, int k, double maxRadiusMeters,
+            String excludeUserId) {
+        SpatialGrid grid = grids.get(meetupId);
+        return grid != null ? grid.nearest(latitude, longitude, k, maxRadiusMeters, excludeUserId) : new ArrayList<>();
+    }
+}
@@ -0,0 +1,14 @@
+package com.trulo.trulomeetuptracker.tracking;
+
+import lombok.Value;
+
+import java.util.Date;
+
+@Value
+public class NearbyUser {
+    String userId;
+    double latitude;
+    double longitude;
+    double distance; // metres from the query point
+    Date lastSeen;
+}
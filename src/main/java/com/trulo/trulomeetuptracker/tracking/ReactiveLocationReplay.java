@@ -0,0 +1,35 @@
+package com.trulo.trulomeetuptracker.tracking;
+
+import com.trulo.trulomeetuptracker.model.LocationHistory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+/**
+ * Non-blocking {@link LocationReplay}: the cursor over {@code location_history} is consumed with
+ * backpressure, one minute of buckets at a time.
+ */
+@Component
+@Profile("reactive")
+public class ReactiveLocationReplay {
+
+    @Autowired
+    private ReactiveMongoTemplate mongoTemplate;
+
+    public Flux<LocationReplay.ReplayPoint> stream(String meetupId, double toleranceMeters, long maxGapMillis) {
+        return Flux.defer(() -> {
+            Query query = new Query(Criteria.where("meetupId").is(meetupId))
+                    .with(Sort.by(Sort.Order.asc("bucket"), Sort.Order.asc("userId")));
+            TrajectorySimplifier simplifier = new TrajectorySimplifier(toleranceMeters, maxGapMillis);
+
+            return mongoTemplate.find(query, LocationHistory.class)
+                    .bufferUntilChanged(LocationHistory::getBucket)
+                    .concatMapIterable(minute -> LocationReplay.simplifyMinute(minute, simplifier));
+        });
+    }
+}
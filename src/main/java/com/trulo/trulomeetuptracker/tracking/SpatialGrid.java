@@ -0,0 +1,281 @@
+package com.trulo.trulomeetuptracker.tracking;
+
+import java.util.*;
+
+/**
+ * Uniform grid over the live positions of one meetup's participants.
+ *
+ * Cells are {@code cellSizeMeters} square, using an equirectangular projection around the
+ * first reported latitude (meetups are local, so the distortion is negligible). Radius and
+ * k-nearest queries only visit the cells that can contain a match, or the occupied cells when
+ * there are fewer of those, so a sparse grid with a large radius stays cheap under the lock.
+ */
+public class SpatialGrid {
+
+    // Upper bound on the rings a query walks; MeetupSpatialIndex already caps the radius, this
+    // only guards against a tiny cell size or a huge radius from another caller
+    private static final int MAX_RINGS = 1000;
+
+    private final double cellSizeMeters;
+
+    // Fixed on the first insert
+    private double cellLatDegrees;
+    private double cellLngDegrees;
+    private boolean projected;
+
+    // All state below is guarded by this
+    private final Map<Long, Set<String>> cells = new HashMap<>();
+    private final Map<String, Position> positions = new HashMap<>();
+
+    public SpatialGrid(double cellSizeMeters) {
+        this.cellSizeMeters = cellSizeMeters;
+    }
+
+    public synchronized void update(String userId, double latitude, double longitude, long timestamp) {
+        if (!projected) {
+            cellLatDegrees = cellSizeMeters / GeoUtils.METERS_PER_DEGREE_LAT;
+            cellLngDegrees = cellSizeMeters / GeoUtils.metersPerDegreeLng(latitude);
+            projected = true;
+        }
+
+        int cellX = cellX(longitude);
+        int cellY = cellY(latitude);
+        long cell = cellKey(cellX, cellY);
+        Position previous = positions.put(userId, new Position(userId, latitude, longitude, timestamp, cell));
+
+        if (previous == null || previous.cell != cell) {
+            if (previous != null) {
+                removeFromCell(previous.cell, userId);
+            }
+            cells.computeIfAbsent(cell, k -> new HashSet<>()).add(userId);
+        }
+    }
+
+    public synchronized void remove(String userId) {
+        Position previous = positions.remove(userId);
+        if (previous != null) {
+            removeFromCell(previous.cell, userId);
+        }
+    }
+
+    public synchronized boolean isEmpty() {
+        return positions.isEmpty();
+    }
+
+    public synchronized Position position(String userId) {
+        return positions.get(userId);
+    }
+
+    /** Everyone within {@code radiusMeters}, nearest first. */
+    public synchronized List<NearbyUser> withinRadius(double latitude, double longitude, double radiusMeters,
+            String excludeUserId) {
+        List<NearbyUser> result = new ArrayList<>();
+        if (!projected) {
+            return result;
+        }
+
+        int rings = rings(radiusMeters);
+        int centerX = cellX(longitude);
+        int centerY = cellY(latitude);
+
+        if (squareCells(rings) > cells.size()) {
+            // Fewer occupied cells than cells in the square: visit those instead
+            for (Set<String> occupants : cells.values()) {
+                collect(result, occupants, latitude, longitude, radiusMeters, excludeUserId);
+            }
+        } else {
+            for (int x = centerX - rings; x <= centerX + rings; x++) {
+                for (int y = centerY - rings; y <= centerY + rings; y++) {
+                    Set<String> occupants = cells.get(cellKey(x, y));
+                    if (occupants != null) {
+                        collect(result, occupants, latitude, longitude, radiusMeters, excludeUserId);
+                    }
+                }
+            }
+        }
+
+        result.sort(Comparator.comparingDouble(NearbyUser::getDistance));
+        return result;
+    }
+
+    /** The {@code k} nearest users, optionally capped at {@code maxRadiusMeters}. */
+    public synchronized List<NearbyUser> nearest(double latitude, double longitude, int k, double maxRadiusMeters,
+            String excludeUserId) {
+        if (!projected || k <= 0) {
+            return new ArrayList<>();
+        }
+
+        // Max-heap on distance holding the best k so far
+        PriorityQueue<NearbyUser> best = new PriorityQueue<>(
+                Comparator.comparingDouble(NearbyUser::getDistance).reversed());
+        int centerX = cellX(longitude);
+        int centerY = cellY(latitude);
+        int candidates = positions.size() - (excludeUserId != null && positions.containsKey(excludeUserId) ? 1 : 0);
+        int maxRing = rings(maxRadiusMeters) + 1;
+        int seen = 0;
+
+        for (int ring = 0; ring <= maxRing && seen < candidates; ring++) {
+            // Anything in this ring or beyond is at least (ring - 1) cells away
+            double ringDistance = Math.max(0, ring - 1) * cellSizeMeters;
+            if (ringDistance > maxRadiusMeters) {
+                break;
+            }
+            if (best.size() == k && ringDistance > best.peek().getDistance()) {
+                break;
+            }
+
+            if (squareCells(ring) > cells.size()) {
+                // The rings walked so far already cover more cells than are occupied, so finish
+                // with the occupied cells this ring or further out
+                for (Map.Entry<Long, Set<String>> cell : cells.entrySet()) {
+                    long key = cell.getKey();
+                    int cellRing = Math.max(Math.abs(keyX(key) - centerX), Math.abs(keyY(key) - centerY));
+                    if (cellRing >= ring) {
+                        offer(best, k, cell.getValue(), latitude, longitude, maxRadiusMeters, excludeUserId);
+                    }
+                }
+                break;
+            }
+
+            // Only the perimeter; interior cells were visited in earlier rings
+            if (ring == 0) {
+                seen += offer(best, k, cells.get(cellKey(centerX, centerY)), latitude, longitude, maxRadiusMeters,
+                        excludeUserId);
+                continue;
+            }
+            for (int x = centerX - ring; x <= centerX + ring; x++) {
+                seen += offer(best, k, cells.get(cellKey(x, centerY - ring)), latitude, longitude, maxRadiusMeters,
+                        excludeUserId);
+                seen += offer(best, k, cells.get(cellKey(x, centerY + ring)), latitude, longitude, maxRadiusMeters,
+                        excludeUserId);
+            }
+            for (int y = centerY - ring + 1; y <= centerY + ring - 1; y++) {
+                seen += offer(best, k, cells.get(cellKey(centerX - ring, y)), latitude, longitude, maxRadiusMeters,
+                        excludeUserId);
+                seen += offer(best, k, cells.get(cellKey(centerX + ring, y)), latitude, longitude, maxRadiusMeters,
+                        excludeUserId);
+            }
+        }
+
+        List<NearbyUser> result = new ArrayList<>(best);
+        result.sort(Comparator.comparingDouble(NearbyUser::getDistance));
+        return result;
+    }
+
+    private void collect(List<NearbyUser> result, Set<String> occupants, double latitude, double longitude,
+            double radiusMeters, String excludeUserId) {
+        for (String userId : occupants) {
+            if (userId.equals(excludeUserId)) {
+                continue;
+            }
+            Position p = positions.get(userId);
+            double distance = GeoUtils.distanceMeters(latitude, longitude, p.latitude, p.longitude);
+            if (distance <= radiusMeters) {
+                result.add(p.toNearby(distance));
+            }
+        }
+    }
+
+    /** Adds the cell's occupants to the best-k heap; returns how many were considered. */
+    private int offer(PriorityQueue<NearbyUser> best, int k, Set<String> occupants, double latitude,
+            double longitude, double maxRadiusMeters, String excludeUserId) {
+        if (occupants == null) {
+            return 0;
+        }
+        int seen = 0;
+        for (String userId : occupants) {
+            if (userId.equals(excludeUserId)) {
+                continue;
+            }
+            seen++;
+            Position p = positions.get(userId);
+            double distance = GeoUtils.distanceMeters(latitude, longitude, p.latitude, p.longitude);
+            if (distance > maxRadiusMeters) {
+                continue;
+            }
+            if (best.size() < k) {
+                best.add(p.toNearby(distance));
+            } else if (distance < best.peek().getDistance()) {
+                best.poll();
+                best.add(p.toNearby(distance));
+            }
+        }
+        return seen;
+    }
+
+    private int rings(double radiusMeters) {
+        return (int) Math.min(MAX_RINGS, Math.ceil(radiusMeters / cellSizeMeters));
+    }
+
+    // Cells in the square of the given ring and all rings inside it
+    private static long squareCells(int ring) {
+        long side = 2L * ring + 1;
+        return side * side;
+    }
+
+    private void removeFromCell(long cell, String userId) {
+        Set<String> occupants = cells.get(cell);
+        if (occupants != null) {
+            occupants.remove(userId);
+            if (occupants.isEmpty()) {
+                cells.remove(cell);
+            }
+        }
+    }
+
+    private int cellX(double longitude) {
+        return (int) Math.floor(longitude / cellLngDegrees);
+    }
+
+    private int cellY(double latitude) {
+        return (int) Math.floor(latitude / cellLatDegrees);
+    }
+
+    private static long cellKey(int x, int y) {
+        return ((long) y << 32) | (x & 0xFFFFFFFFL);
+    }
+
+    private static int keyX(long key) {
+        return (int) key;
+    }
+
+    private static int keyY(long key) {
+        return (int) (key >> 32);
+    }
+
+    public static final class Position {
+        private final String userId;
+        private final double latitude;
+        private final double longitude;
+        private final long timestamp;
+        private final long cell;
+
+        Position(String userId, double latitude, double longitude, long timestamp, long cell) {
+            this.userId = userId;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.timestamp = timestamp;
+            this.cell = cell;
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        public double getLatitude() {
+            return latitude;
+        }
+
+        public double getLongitude() {
+            return longitude;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        NearbyUser toNearby(double distance) {
+            return new NearbyUser(userId, latitude, longitude, distance, new Date(timestamp));
+        }
+    }
+}
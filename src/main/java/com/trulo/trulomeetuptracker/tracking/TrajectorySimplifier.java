@@ -0,0 +1,41 @@
+package com.trulo.trulomeetuptracker.tracking;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Streaming distance/time dead band over many interleaved trails. A point is kept when it is
+ * the first of its trail, has moved at least {@code toleranceMeters} from the last kept point,
+ * or {@code maxGapMillis} have passed since it. Needs O(trails) memory, not O(points).
+ */
+public class TrajectorySimplifier {
+
+    private final double toleranceMeters;
+    private final long maxGapMillis;
+
+    // Map: userId -> last kept point as {latitude, longitude, timestamp}
+    private final Map<String, double[]> lastKept = new HashMap<>();
+
+    public TrajectorySimplifier(double toleranceMeters, long maxGapMillis) {
+        this.toleranceMeters = toleranceMeters;
+        this.maxGapMillis = maxGapMillis;
+    }
+
+    public boolean accept(String userId, double latitude, double longitude, long timestamp) {
+        double[] last = lastKept.get(userId);
+        if (last != null
+                && timestamp - (long) last[2] < maxGapMillis
+                && GeoUtils.distanceMeters(last[0], last[1], latitude, longitude) < toleranceMeters) {
+            return false;
+        }
+
+        if (last == null) {
+            lastKept.put(userId, new double[] { latitude, longitude, timestamp });
+        } else {
+            last[0] = latitude;
+            last[1] = longitude;
+            last[2] = timestamp;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,206 @@
+package com.trulo.trulomeetuptracker.repository;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.trulo.trulomeetuptracker.model.Meetup;
+import com.trulo.trulomeetuptracker.service.InviteCodeCache;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.springframework.data.repository.core.support.RepositoryComposition.RepositoryFragments;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Participant changes racing each other on an in-memory MongoDB: every user must end up in
+ * the meetup exactly once, and an accepted invite must stay accepted.
+ */
+class MeetupRepositoryImplTest {
+
+    private static final int THREADS = 16;
+    private static final int USERS = 40;
+    private static final int ROUNDS = 10;
+    private static final int INVITE_CODE_JOINS = 400;
+
+    private MongoServer mongoServer;
+    private MongoClient mongoClient;
+    private MongoTemplate mongoTemplate;
+    private MeetupRepositoryImpl repository;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void start() {
+        mongoServer = new MongoServer(new MemoryBackend());
+        InetSocketAddress address = mongoServer.bind();
+        mongoClient = MongoClients.create("mongodb://" + address.getHostString() + ":" + address.getPort());
+        mongoTemplate = new MongoTemplate(mongoClient, "trulo_test");
+        repository = new MeetupRepositoryImpl();
+        ReflectionTestUtils.setField(repository, "mongoTemplate", mongoTemplate);
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @AfterEach
+    void stop() {
+        executor.shutdownNow();
+        mongoClient.close();
+        mongoServer.shutdownNow();
+    }
+
+    @Test
+    void concurrentAcceptsAndInvitesLeaveOneAcceptedEntryPerUser() throws Exception {
+        Random random = new Random(17);
+        for (int round = 0; round < ROUNDS; round++) {
+            String meetupId = insertMeetup("round-" + round);
+            List<String> users = users(round);
+
+            List<Callable<Object>> calls = new ArrayList<>();
+            for (String userId : users) {
+                calls.add(() -> repository.acceptInvite(meetupId, userId));
+                // Invited alongside others, as the invite endpoint does
+                List<String> batch = new ArrayList<>(List.of(userId, users.get(random.nextInt(USERS))));
+                calls.add(() -> repository.addInvitedParticipants(meetupId, batch));
+            }
+            List<Object> results = runTogether(calls);
+
+            for (int i = 0; i < results.size(); i += 2) {
+                assertNotNull(results.get(i), "acceptInvite returned null for " + users.get(i / 2));
+            }
+            Map<String, List<String>> statuses = statuses(meetupId);
+            assertEquals(USERS + 1, statuses.size(), "lost participants in " + meetupId);
+            for (String userId : users) {
+                assertEquals(List.of("accepted"), statuses.get(userId), userId + " in " + meetupId);
+            }
+            assertEquals(List.of("accepted"), statuses.get("creator"));
+        }
+    }
+
+    @Test
+    void concurrentInviteCodeJoinsAreAllKept() throws Exception {
+        String meetupId = insertMeetup("invite-code");
+        mongoTemplate.updateFirst(MeetupQueries.byId(meetupId), new Update().set("inviteCode", "ABC123"), Meetup.class);
+
+        // The join endpoint's path: the cached code lookup, then the conditional accept
+        MeetupRepository meetups = new MongoRepositoryFactory(mongoTemplate)
+                .getRepository(MeetupRepository.class, RepositoryFragments.just(repository));
+        InviteCodeCache inviteCodeCache = new InviteCodeCache();
+        ReflectionTestUtils.setField(inviteCodeCache, "meetupRepository", meetups);
+        ReflectionTestUtils.setField(inviteCodeCache, "maxSize", 100L);
+        ReflectionTestUtils.setField(inviteCodeCache, "ttl", 60_000L);
+        inviteCodeCache.init();
+
+        List<Callable<Object>> calls = new ArrayList<>();
+        for (int i = 0; i < INVITE_CODE_JOINS; i++) {
+            String userId = "joiner-" + i;
+            calls.add(() -> meetups.acceptInvite(inviteCodeCache.meetupId("ABC123").orElseThrow(), userId));
+        }
+        List<Object> results = runTogether(calls);
+
+        for (int i = 0; i < results.size(); i++) {
+            assertNotNull(results.get(i), "join " + i + " was refused");
+        }
+        Map<String, List<String>> statuses = statuses(meetupId);
+        assertEquals(INVITE_CODE_JOINS + 1, statuses.size(), "lost joins");
+        statuses.forEach((userId, userStatuses) -> assertEquals(List.of("accepted"), userStatuses, userId));
+    }
+
+    @Test
+    void overlappingInviteBatchesAddEachUserOnce() throws Exception {
+        for (int round = 0; round < ROUNDS; round++) {
+            String meetupId = insertMeetup("invites-" + round);
+            List<String> users = users(round);
+
+            List<Callable<Object>> calls = new ArrayList<>();
+            for (int i = 0; i < THREADS * 2; i++) {
+                List<String> batch = new ArrayList<>(users);
+                Collections.shuffle(batch, new Random(i));
+                List<String> half = batch.subList(0, USERS / 2);
+                calls.add(() -> repository.addInvitedParticipants(meetupId, half));
+            }
+            List<Object> results = runTogether(calls);
+
+            Map<String, List<String>> statuses = statuses(meetupId);
+            int added = results.stream().mapToInt(result -> (Integer) result).sum();
+            assertEquals(statuses.size() - 1, added, "added count does not match the participants");
+            statuses.forEach((userId, userStatuses) -> assertEquals(1, userStatuses.size(), userId + " duplicated"));
+        }
+    }
+
+    private String insertMeetup(String id) {
+        Meetup meetup = Meetup.builder()
+                .id(id)
+                .title(id)
+                .creator("creator")
+                .scheduledTime(new Date())
+                .build();
+        meetup.getParticipants().add(new Meetup.Participant("creator", "accepted", new Date()));
+        mongoTemplate.insert(meetup);
+        return id;
+    }
+
+    private static List<String> users(int round) {
+        List<String> users = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            users.add("user-" + round + "-" + i);
+        }
+        return users;
+    }
+
+    /** @return userId -> the status of each of its entries */
+    private Map<String, List<String>> statuses(String meetupId) {
+        Meetup meetup = mongoTemplate.findById(meetupId, Meetup.class);
+        assertNotNull(meetup);
+        Map<String, List<String>> statuses = new HashMap<>();
+        for (Meetup.Participant participant : meetup.getParticipants()) {
+            statuses.computeIfAbsent(participant.getUser(), k -> new ArrayList<>()).add(participant.getStatus());
+        }
+        return statuses;
+    }
+
+    /** Runs the calls on all threads at once, in a shuffled order. */
+    private List<Object> runTogether(List<Callable<Object>> calls) throws Exception {
+        CountDownLatch ready = new CountDownLatch(1);
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < calls.size(); i++) {
+            order.add(i);
+        }
+        Collections.shuffle(order, new Random(calls.size()));
+
+        Map<Integer, Future<Object>> futures = new HashMap<>();
+        for (int index : order) {
+            Callable<Object> call = calls.get(index);
+            futures.put(index, executor.submit(() -> {
+                ready.await();
+                return call.call();
+            }));
+        }
+        ready.countDown();
+
+        List<Object> results = new ArrayList<>();
+        for (int i = 0; i < calls.size(); i++) {
+            results.add(futures.get(i).get(30, TimeUnit.SECONDS));
+        }
+        return results;
+    }
+}
@@ -0,0 +1,48 @@
+package com.trulo.trulomeetuptracker.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Queries shared by more users than the candidate cap: they are answered from the index,
+ * with the same substring matches as narrow queries.
+ */
+class UserNgramIndexTest {
+
+    private static final int MAX_CANDIDATES = 20;
+    private static final int USERS = 200;
+
+    @Test
+    void broadQueriesStillMatchSubstrings() {
+        UserNgramIndex index = new UserNgramIndex(MAX_CANDIDATES);
+        for (int i = 0; i < USERS; i++) {
+            // Every user contains "ann" somewhere, but none as a whole word
+            index.put("id" + i, "user" + i, "Joanna " + i, "x" + i + "@hannover.example");
+        }
+
+        List<String> ids = index.search("ann", null, 10);
+
+        assertEquals(10, ids.size());
+        ids.forEach(id -> assertTrue(id.startsWith("id"), id));
+    }
+
+    @Test
+    void broadQueriesRankTheCandidatesTheyCheck() {
+        UserNgramIndex index = new UserNgramIndex(MAX_CANDIDATES);
+        for (int i = 0; i < USERS; i++) {
+            index.put("id" + i, "joanna" + i, null, null);
+            if (i == MAX_CANDIDATES / 2) {
+                index.put("exact", "ann", null, null);
+                index.put("prefix", "anna", null, null);
+            }
+        }
+
+        List<String> ids = index.search("Ann", null, 3);
+
+        assertEquals(List.of("exact", "prefix", "id0"), ids);
+    }
+}
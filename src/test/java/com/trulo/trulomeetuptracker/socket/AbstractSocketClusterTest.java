@@ -0,0 +1,127 @@
+package com.trulo.trulomeetuptracker.socket;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.netty.channel.nio.NioEventLoopGroup;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Two socket nodes in one JVM, joined by whatever cluster backend the subclass gives them:
+ * fixes, joins and leaves fan out across nodes, and presence lists the members of both.
+ */
+abstract class AbstractSocketClusterTest {
+
+    protected final List<SocketTestServer> nodes = new ArrayList<>();
+    protected final List<SocketTestClient> clients = new ArrayList<>();
+    protected NioEventLoopGroup group;
+    protected SocketTestServer nodeA;
+    protected SocketTestServer nodeB;
+
+    /** Starts one node of the cluster under test. */
+    protected abstract SocketTestServer startNode() throws IOException;
+
+    @BeforeEach
+    void startNodes() throws IOException {
+        nodeA = startNode();
+        nodes.add(nodeA);
+        nodeB = startNode();
+        nodes.add(nodeB);
+        group = new NioEventLoopGroup(2);
+    }
+
+    @AfterEach
+    void stopNodes() {
+        clients.forEach(SocketTestClient::close);
+        group.shutdownGracefully(0, 1, TimeUnit.SECONDS).syncUninterruptibly();
+        nodes.forEach(SocketTestServer::close);
+    }
+
+    @Test
+    void locationsAndPresenceAreSharedAcrossNodes() throws Exception {
+        SocketTestClient alice = join(nodeA, "alice", "meetup-1");
+        SocketTestClient bob = join(nodeB, "bob", "meetup-1");
+
+        assertNotNull(alice.await("user_joined", 5_000), "alice was not told bob joined");
+
+        alice.emit("location_update", "{\"meetupId\":\"meetup-1\",\"latitude\":52.5,\"longitude\":13.4}");
+        JsonNode fix = awaitFix(bob, "alice", 5_000);
+        assertNotNull(fix, "bob did not receive alice's fix");
+        assertEquals(52.5, fix.path("latitude").asDouble());
+
+        assertActiveUsers(bob, "meetup-1", "alice", "bob");
+        assertActiveUsers(alice, "meetup-1", "alice", "bob");
+    }
+
+    @Test
+    void leavesAreSeenOnTheOtherNode() throws Exception {
+        SocketTestClient alice = join(nodeA, "alice", "meetup-1");
+        SocketTestClient bob = join(nodeB, "bob", "meetup-1");
+        assertActiveUsers(bob, "meetup-1", "alice", "bob");
+
+        alice.close();
+        alice.closed().get(5, TimeUnit.SECONDS);
+
+        JsonNode left = bob.await("user_left", 5_000);
+        assertNotNull(left, "bob was not told alice left");
+        assertEquals("alice", left.path("userId").asText());
+        assertActiveUsers(bob, "meetup-1", "bob");
+    }
+
+    protected SocketTestClient join(SocketTestServer node, String userId, String meetupId) throws Exception {
+        // Users live in MongoDB, so every node finds them
+        nodes.forEach(n -> n.login(userId));
+        SocketTestClient client = new SocketTestClient();
+        clients.add(client);
+        client.connect(group, node.port(), node.token(userId)).get(5, TimeUnit.SECONDS);
+        client.emit("join_meetup", "\"" + meetupId + "\"");
+        return client;
+    }
+
+    /** Presence writes can be asynchronous, so asks again for a while before failing. */
+    protected static void assertActiveUsers(SocketTestClient client, String meetupId, String... expected)
+            throws InterruptedException {
+        Set<String> userIds = activeUsers(client, meetupId);
+        for (int i = 0; i < 50 && !userIds.equals(Set.of(expected)); i++) {
+            Thread.sleep(20);
+            userIds = activeUsers(client, meetupId);
+        }
+        assertEquals(Set.of(expected), userIds);
+    }
+
+    private static Set<String> activeUsers(SocketTestClient client, String meetupId) throws InterruptedException {
+        client.emit("get_active_users", "\"" + meetupId + "\"");
+        JsonNode users = client.await("active_users", 5_000);
+        assertNotNull(users, "no active_users reply");
+        Set<String> userIds = new HashSet<>();
+        users.forEach(user -> userIds.add(user.path("userId").asText()));
+        return userIds;
+    }
+
+    private static JsonNode awaitFix(SocketTestClient client, String userId, long timeoutMillis)
+            throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        for (long left = timeoutMillis; left > 0; left = deadline - System.currentTimeMillis()) {
+            JsonNode batch = client.await("locations_updated", left);
+            if (batch == null) {
+                return null;
+            }
+            for (JsonNode fix : batch.path("locations")) {
+                if (userId.equals(fix.path("userId").asText())) {
+                    return fix;
+                }
+            }
+        }
+        return null;
+    }
+}
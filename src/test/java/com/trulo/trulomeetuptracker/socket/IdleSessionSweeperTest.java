@@ -0,0 +1,78 @@
+package com.trulo.trulomeetuptracker.socket;
+
+import com.trulo.trulomeetuptracker.model.Meetup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A meetup's own idle timeout applies from the first join, although its snapshot is still
+ * loading when the session joins.
+ */
+class IdleSessionSweeperTest {
+
+    private static final int IDLE_TIMEOUT_SECONDS = 1;
+    private static final long MEETUP_LOOKUP_MILLIS = 200;
+
+    private SocketTestServer server;
+    private NioEventLoopGroup group;
+    private SocketTestClient client;
+
+    @BeforeEach
+    void start() throws Exception {
+        // The server default is far longer than the test
+        server = new SocketTestServer(Map.of(
+                "socket.idle.timeout-ms", 600_000,
+                "socket.idle.tick-ms", 50));
+        Meetup meetup = Meetup.builder().id("meetup-1").title("meetup-1").creator("alice").build();
+        meetup.getSettings().setIdleTimeoutSeconds(IDLE_TIMEOUT_SECONDS);
+        server.store().meetups.put("meetup-1", meetup);
+        server.store().meetupLookupMillis = MEETUP_LOOKUP_MILLIS;
+        group = new NioEventLoopGroup(1);
+    }
+
+    @AfterEach
+    void stop() {
+        if (client != null) {
+            client.close();
+        }
+        group.shutdownGracefully(0, 1, TimeUnit.SECONDS).syncUninterruptibly();
+        server.close();
+    }
+
+    @Test
+    void meetupIdleTimeoutEvictsOnTheFirstJoin() throws Exception {
+        client = new SocketTestClient();
+        client.connect(group, server.port(), server.login("alice")).get(5, TimeUnit.SECONDS);
+        long joined = System.currentTimeMillis();
+        client.emit("join_meetup", "\"meetup-1\"");
+
+        client.closed().get(IDLE_TIMEOUT_SECONDS + 5, TimeUnit.SECONDS);
+        long idleFor = System.currentTimeMillis() - joined;
+
+        assertTrue(idleFor >= IDLE_TIMEOUT_SECONDS * 1000L, "evicted after " + idleFor + " ms");
+        assertEquals(1, server.bean(IdleSessionSweeper.class).getEvicted());
+        // The disconnect is handled after the socket closes
+        SessionRegistry sessions = server.bean(SessionRegistry.class);
+        assertTrue(waitFor(() -> sessions.members("meetup-1").isEmpty(), 5_000), "still a member");
+    }
+
+    private static boolean waitFor(BooleanSupplier condition, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,22 @@
+package com.trulo.trulomeetuptracker.socket;
+
+import com.trulo.trulomeetuptracker.socket.cluster.LocalClusterBus;
+import com.trulo.trulomeetuptracker.socket.cluster.LocalPresenceDirectory;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Two socket nodes sharing one in-process bus and presence directory, so the cluster paths
+ * run without Redis.
+ */
+class LocalSocketClusterTest extends AbstractSocketClusterTest {
+
+    private final LocalClusterBus clusterBus = new LocalClusterBus();
+    private final LocalPresenceDirectory presenceDirectory = new LocalPresenceDirectory();
+
+    @Override
+    protected SocketTestServer startNode() throws IOException {
+        return new SocketTestServer(Map.of("socket.location.tick-ms", 100), clusterBus, presenceDirectory);
+    }
+}
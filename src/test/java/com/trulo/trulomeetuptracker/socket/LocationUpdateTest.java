@@ -0,0 +1,96 @@
+package com.trulo.trulomeetuptracker.socket;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.trulo.trulomeetuptracker.model.Meetup;
+import com.trulo.trulomeetuptracker.tracking.MeetupSpatialIndex;
+import io.netty.channel.nio.NioEventLoopGroup;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * location_update from a socket that did not join the meetup: none of its side effects
+ * (geofence events, fan-out, the live position index) may reach the meetup.
+ */
+class LocationUpdateTest {
+
+    private static final double LATITUDE = 52.52;
+    private static final double LONGITUDE = 13.405;
+
+    private SocketTestServer server;
+    private NioEventLoopGroup group;
+    private final List<SocketTestClient> clients = new ArrayList<>();
+
+    @BeforeEach
+    void start() throws Exception {
+        server = new SocketTestServer(Map.of("socket.location.tick-ms", 50));
+        server.store().meetups.put("meetup-1", Meetup.builder()
+                .id("meetup-1")
+                .title("meetup-1")
+                .creator("alice")
+                .location(new Meetup.Location("Alexanderplatz", null, new Meetup.Coordinates(LATITUDE, LONGITUDE)))
+                .build());
+        group = new NioEventLoopGroup(1);
+    }
+
+    @AfterEach
+    void stop() {
+        clients.forEach(SocketTestClient::close);
+        group.shutdownGracefully(0, 1, TimeUnit.SECONDS).syncUninterruptibly();
+        server.close();
+    }
+
+    @Test
+    void nonMembersCannotTriggerGeofenceEventsOrFanOut() throws Exception {
+        SocketTestClient alice = connect("alice");
+        alice.emit("join_meetup", "\"meetup-1\"");
+        SocketTestClient mallory = connect("mallory");
+        assertNull(alice.await("user_joined", 200), "mallory joined");
+
+        // Right at the meetup point, without joining
+        mallory.emit("location_update", fix("meetup-1"));
+        assertNull(alice.await("participant_arrived", 500), "a non-member arrived");
+        assertNull(server.bean(MeetupSpatialIndex.class).position("meetup-1", "mallory"));
+
+        // The same fix from a member goes through
+        alice.emit("location_update", fix("meetup-1"));
+        JsonNode arrived = alice.await("participant_arrived", 5_000);
+        assertNotNull(arrived, "the member did not arrive");
+        assertEquals("alice", arrived.path("userId").asText());
+        assertNotNull(server.bean(MeetupSpatialIndex.class).position("meetup-1", "alice"));
+    }
+
+    @Test
+    void fixesWithoutAMeetupOnlyMoveTheSession() throws Exception {
+        SocketTestClient alice = connect("alice");
+        alice.emit("join_meetup", "\"meetup-1\"");
+        alice.emit("location_update", "{\"latitude\":" + LATITUDE + ",\"longitude\":" + LONGITUDE + "}");
+
+        // Used to fail with a NullPointerException on the missing meetupId
+        alice.emit("get_active_users", "\"meetup-1\"");
+        JsonNode users = alice.await("active_users", 5_000);
+        assertNotNull(users);
+        assertEquals(LATITUDE, users.path(0).path("location").path("latitude").asDouble());
+        assertNull(alice.await("participant_arrived", 200), "a fix without a meetup ran the geofence");
+    }
+
+    private SocketTestClient connect(String userId) throws Exception {
+        SocketTestClient client = new SocketTestClient();
+        clients.add(client);
+        client.connect(group, server.port(), server.login(userId)).get(5, TimeUnit.SECONDS);
+        return client;
+    }
+
+    private static String fix(String meetupId) {
+        return "{\"meetupId\":\"" + meetupId + "\",\"latitude\":" + LATITUDE + ",\"longitude\":" + LONGITUDE + "}";
+    }
+}
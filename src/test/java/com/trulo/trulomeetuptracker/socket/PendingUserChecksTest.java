@@ -0,0 +1,132 @@
+package com.trulo.trulomeetuptracker.socket;
+
+import com.trulo.trulomeetuptracker.tracking.MeetupSpatialIndex;
+import io.netty.channel.nio.NioEventLoopGroup;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Socket handshakes against a slow user repository: they must not wait for the lookup, and
+ * nothing a socket sends may take effect before its user is confirmed.
+ */
+class PendingUserChecksTest {
+
+    private static final long LOOKUP_MILLIS = 500;
+    private static final int LOAD_THREADS = 4;
+
+    private SocketTestServer server;
+    private NioEventLoopGroup group;
+    private final List<SocketTestClient> clients = new ArrayList<>();
+
+    @BeforeEach
+    void start() throws Exception {
+        server = new SocketTestServer(Map.of(
+                "security.principal-cache.load-threads", LOAD_THREADS,
+                "socket.user-check.timeout-ms", 30_000));
+        server.store().userLookupMillis = LOOKUP_MILLIS;
+        group = new NioEventLoopGroup(2);
+    }
+
+    @AfterEach
+    void stop() {
+        clients.forEach(SocketTestClient::close);
+        group.shutdownGracefully(0, 1, TimeUnit.SECONDS).syncUninterruptibly();
+        server.close();
+    }
+
+    @Test
+    void handshakeThroughputIsNotBoundByUserLookups() throws Exception {
+        int count = 40;
+        long start = System.nanoTime();
+        List<CompletableFuture<Void>> connected = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            connected.add(connect(server.login("user-" + i)));
+        }
+
+        CompletableFuture.allOf(connected.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        double handshakesPerSecond = count / seconds;
+
+        // Waiting on the repository would cap handshakes at LOAD_THREADS lookups at a time
+        double lookupBound = LOAD_THREADS * 1000.0 / LOOKUP_MILLIS;
+        assertTrue(handshakesPerSecond > 2 * lookupBound, String.format(
+                "%.1f handshakes/s, lookups alone allow %.1f/s", handshakesPerSecond, lookupBound));
+
+        PendingUserChecks userChecks = server.bean(PendingUserChecks.class);
+        // Once per socket, although connect listeners run twice per socket
+        waitFor(() -> userChecks.getConfirmed() + userChecks.getRejected() >= count, 30_000);
+        assertEquals(count, userChecks.getConfirmed());
+        assertEquals(0, userChecks.getRejected());
+        assertEquals(0, userChecks.getPending());
+    }
+
+    @Test
+    void eventsAreHeldUntilTheUserIsConfirmed() throws Exception {
+        SessionRegistry sessions = server.bean(SessionRegistry.class);
+        SocketTestClient client = new SocketTestClient();
+        clients.add(client);
+        client.connect(group, server.port(), server.login("alice")).get(10, TimeUnit.SECONDS);
+
+        client.emit("join_meetup", "\"meetup-1\"");
+        client.emit("location_update", "{\"meetupId\":\"meetup-1\",\"latitude\":52.5,\"longitude\":13.4}");
+        Thread.sleep(LOOKUP_MILLIS / 5);
+        assertTrue(sessions.members("meetup-1").isEmpty(), "joined before the user was confirmed");
+
+        // Replayed in order: the join, then the fix that needs it
+        assertTrue(waitFor(() -> sessions.members("meetup-1").contains("alice"), 10_000));
+        assertTrue(waitFor(() -> server.bean(MeetupSpatialIndex.class)
+                .position("meetup-1", "alice") != null, 10_000));
+
+        // Confirmed users are cached, so the next socket is not held at all
+        SocketTestClient second = new SocketTestClient();
+        clients.add(second);
+        second.connect(group, server.port(), server.token("alice")).get(10, TimeUnit.SECONDS);
+        second.emit("join_meetup", "\"meetup-2\"");
+        assertTrue(waitFor(() -> sessions.members("meetup-2").contains("alice"), LOOKUP_MILLIS / 2));
+    }
+
+    @Test
+    void unknownUsersAreDisconnectedWithoutTheirEvents() throws Exception {
+        SessionRegistry sessions = server.bean(SessionRegistry.class);
+        SocketTestClient client = new SocketTestClient();
+        clients.add(client);
+        // Signed, but the user was deleted
+        client.connect(group, server.port(), server.token("ghost")).get(10, TimeUnit.SECONDS);
+
+        client.emit("join_meetup", "\"meetup-1\"");
+        client.closed().get(10, TimeUnit.SECONDS);
+
+        assertTrue(sessions.members("meetup-1").isEmpty());
+        assertEquals(1, server.bean(PendingUserChecks.class).getRejected());
+        assertFalse(waitFor(() -> !sessions.members("meetup-1").isEmpty(), 200));
+    }
+
+    private CompletableFuture<Void> connect(String token) {
+        SocketTestClient client = new SocketTestClient();
+        clients.add(client);
+        return client.connect(group, server.port(), token);
+    }
+
+    private static boolean waitFor(BooleanSupplier condition, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,93 @@
+package com.trulo.trulomeetuptracker.socket;
+
+import com.trulo.trulomeetuptracker.socket.cluster.PresenceEntry;
+import com.trulo.trulomeetuptracker.socket.cluster.RedisPresenceDirectory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.redisson.Redisson;
+import org.redisson.api.RedissonClient;
+import org.redisson.config.Config;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Two socket nodes sharing a real Redis. On top of the shared cluster tests, the Redis
+ * presence lists connected members for as long as they stay connected.
+ *
+ * Starts an embedded Redis server, so it only runs with {@code -P redis-tests}.
+ */
+@Tag("redis")
+class SocketClusterTest extends AbstractSocketClusterTest {
+
+    private static final long PRESENCE_TTL_MILLIS = 1500;
+    private static final long PING_INTERVAL_MILLIS = 300;
+
+    private static RedisServer redis;
+    private static String redisAddress;
+
+    // Every test gets its own channel and presence keys
+    private final String channel = "test-" + UUID.randomUUID();
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redis = new RedisServer(port);
+        redis.start();
+        redisAddress = "redis://127.0.0.1:" + port;
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        redis.stop();
+    }
+
+    @Override
+    protected SocketTestServer startNode() throws IOException {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("socket.cluster.mode", "redis");
+        properties.put("socket.cluster.redis-address", redisAddress);
+        properties.put("socket.cluster.channel", channel);
+        properties.put("socket.cluster.presence-ttl-ms", PRESENCE_TTL_MILLIS);
+        properties.put("socket.cluster.presence-refresh-ms", 100);
+        properties.put("socket.ping-interval-ms", PING_INTERVAL_MILLIS);
+        properties.put("socket.location.tick-ms", 100);
+        return new SocketTestServer(properties);
+    }
+
+    @Test
+    void connectedMembersOutliveThePresenceTtl() throws Exception {
+        join(nodeA, "alice", "meetup-1");
+        SocketTestClient bob = join(nodeB, "bob", "meetup-1");
+
+        // A session of a node that died: written once, never refreshed
+        RedissonClient redisson = redisson();
+        try {
+            new RedisPresenceDirectory(redisson, channel + ":presence:", PRESENCE_TTL_MILLIS, 100)
+                    .put("meetup-1", new PresenceEntry("carol", "dead-session", null, null, System.currentTimeMillis()));
+            assertActiveUsers(bob, "meetup-1", "alice", "bob", "carol");
+
+            // No fixes and no events, only heartbeats
+            Thread.sleep(3 * PRESENCE_TTL_MILLIS);
+
+            assertActiveUsers(bob, "meetup-1", "alice", "bob");
+        } finally {
+            redisson.shutdown();
+        }
+    }
+
+    private static RedissonClient redisson() {
+        Config config = new Config();
+        config.useSingleServer().setAddress(redisAddress);
+        return Redisson.create(config);
+    }
+}
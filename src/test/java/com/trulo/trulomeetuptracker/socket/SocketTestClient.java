@@ -0,0 +1,142 @@
+package com.trulo.trulomeetuptracker.socket;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.HttpClientCodec;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketClientHandshaker;
+import io.netty.handler.codec.http.websocketx.WebSocketClientHandshakerFactory;
+import io.netty.handler.codec.http.websocketx.WebSocketClientProtocolHandler;
+import io.netty.handler.codec.http.websocketx.WebSocketFrameAggregator;
+import io.netty.handler.codec.http.websocketx.WebSocketVersion;
+
+import java.net.URI;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Minimal Socket.IO client for the socket tests: Engine.IO v4 over a websocket, answering
+ * pings and collecting the events it receives. Same protocol handling as SocketLoadTest.
+ */
+class SocketTestClient extends SimpleChannelInboundHandler<TextWebSocketFrame> {
+
+    private static final String HOST = "127.0.0.1";
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final CompletableFuture<Void> connected = new CompletableFuture<>();
+    private final CompletableFuture<Void> closed = new CompletableFuture<>();
+    private final BlockingQueue<JsonNode> events = new LinkedBlockingQueue<>();
+    private volatile Channel channel;
+
+    /** Completes once the client is connected to the default namespace. */
+    CompletableFuture<Void> connect(EventLoopGroup group, int port, String token) {
+        URI uri = URI.create("ws://" + HOST + ":" + port + "/socket.io/?EIO=4&transport=websocket&token=" + token);
+        WebSocketClientHandshaker handshaker = WebSocketClientHandshakerFactory.newHandshaker(
+                uri, WebSocketVersion.V13, null, false, new DefaultHttpHeaders(), 1 << 20);
+        SocketTestClient handler = this;
+        new Bootstrap()
+                .group(group)
+                .channel(NioSocketChannel.class)
+                .option(ChannelOption.TCP_NODELAY, true)
+                .handler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) {
+                        ch.pipeline().addLast(
+                                new HttpClientCodec(),
+                                new HttpObjectAggregator(1 << 16),
+                                new WebSocketClientProtocolHandler(handshaker),
+                                new WebSocketFrameAggregator(1 << 20),
+                                handler);
+                    }
+                })
+                .connect(HOST, port)
+                .addListener((ChannelFutureListener) future -> {
+                    if (!future.isSuccess()) {
+                        connected.completeExceptionally(future.cause());
+                    }
+                });
+        return connected;
+    }
+
+    /** @param json the event argument, already encoded */
+    void emit(String event, String json) {
+        channel.writeAndFlush(new TextWebSocketFrame("42[\"" + event + "\"," + json + "]"));
+    }
+
+    /** @return the argument of the next event with this name, or null if none arrived in time */
+    JsonNode await(String event, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        for (long left = timeoutMillis; left > 0; left = deadline - System.currentTimeMillis()) {
+            JsonNode next = events.poll(left, TimeUnit.MILLISECONDS);
+            if (next != null && event.equals(next.path(0).asText())) {
+                return next.path(1);
+            }
+        }
+        return null;
+    }
+
+    CompletableFuture<Void> closed() {
+        return closed;
+    }
+
+    void close() {
+        Channel ch = channel;
+        if (ch != null) {
+            ch.close();
+        }
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        channel = ctx.channel();
+        super.channelActive(ctx);
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, TextWebSocketFrame frame) throws Exception {
+        String text = frame.text();
+        if (text.startsWith("0")) {
+            // Engine.IO open; connect to the default namespace
+            ctx.writeAndFlush(new TextWebSocketFrame("40"));
+        } else if (text.equals("2")) {
+            ctx.writeAndFlush(new TextWebSocketFrame("3"));
+        } else if (text.startsWith("40")) {
+            connected.complete(null);
+        } else if (text.startsWith("41")) {
+            // Disconnected by the server
+            ctx.close();
+        } else if (text.startsWith("44")) {
+            connected.completeExceptionally(new IllegalStateException("Connect refused: " + text));
+            ctx.close();
+        } else if (text.startsWith("42")) {
+            events.add(MAPPER.readTree(text.substring(2)));
+        }
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        connected.completeExceptionally(new IllegalStateException("Closed before connecting"));
+        closed.complete(null);
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        connected.completeExceptionally(cause);
+        ctx.close();
+    }
+}
@@ -0,0 +1,161 @@
+package com.trulo.trulomeetuptracker.socket;
+
+import com.corundumstudio.socketio.SocketIOServer;
+import com.trulo.trulomeetuptracker.model.Meetup;
+import com.trulo.trulomeetuptracker.model.User;
+import com.trulo.trulomeetuptracker.repository.MeetupRepository;
+import com.trulo.trulomeetuptracker.repository.UserRepository;
+import com.trulo.trulomeetuptracker.security.JwtUtil;
+import com.trulo.trulomeetuptracker.security.PrincipalCache;
+import com.trulo.trulomeetuptracker.socket.cluster.ClusterBus;
+import com.trulo.trulomeetuptracker.socket.cluster.ClusterConfig;
+import com.trulo.trulomeetuptracker.socket.cluster.PresenceDirectory;
+import com.trulo.trulomeetuptracker.tracking.ActiveMeetupCache;
+import com.trulo.trulomeetuptracker.tracking.GeofenceEngine;
+import com.trulo.trulomeetuptracker.tracking.LocationHistoryWriter;
+import com.trulo.trulomeetuptracker.tracking.MeetupSpatialIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mockito.Mockito;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.support.PropertySourcesPlaceholderConfigurer;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Runs the real SocketIOServer with SocketHandler and the tracking components against
+ * in-memory users and meetups, the way SocketLoadTest does. History writes are disabled.
+ */
+class SocketTestServer implements AutoCloseable {
+
+    private static final String SECRET = "socket_test_secret_that_is_long_enough_for_the_hs256_algorithm";
+
+    private final AnnotationConfigApplicationContext context;
+    private final int port;
+
+    /** @param overrides extra properties, such as the cluster mode */
+    SocketTestServer(Map<String, Object> overrides) throws IOException {
+        this(overrides, null, null);
+    }
+
+    /**
+     * A node of an in-process cluster: servers given the same bus and presence directory see
+     * each other's events and members, as with the Redis backend.
+     */
+    SocketTestServer(Map<String, Object> overrides, ClusterBus clusterBus, PresenceDirectory presenceDirectory)
+            throws IOException {
+        this.port = freePort();
+        Map<String, Object> properties = new HashMap<>();
+        // SocketIOConfig listens on server.port + 1
+        properties.put("server.port", port - 1);
+        properties.put("jwt.secret", SECRET);
+        properties.put("jwt.expiration", 86_400_000L);
+        properties.put("socket.cluster.mode", "local");
+        properties.put("tracking.history.enabled", false);
+        if (clusterBus != null) {
+            // Neither ClusterConfig backend; the shared instances are registered below
+            properties.put("socket.cluster.mode", "shared");
+        }
+        properties.putAll(overrides);
+
+        context = new AnnotationConfigApplicationContext();
+        if (clusterBus != null) {
+            context.registerBean(ClusterBus.class, () -> clusterBus);
+            context.registerBean(PresenceDirectory.class, () -> presenceDirectory);
+        }
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test", properties));
+        context.register(PropertySourcesPlaceholderConfigurer.class, SimpleMeterRegistry.class, InMemoryStore.class,
+                ClusterConfig.class, SocketIOConfig.class, JwtUtil.class, PrincipalCache.class,
+                PendingUserChecks.class, SessionRegistry.class, IdleSessionSweeper.class, RoomBroadcaster.class,
+                LocationBroadcaster.class, SocketHandler.class, ActiveMeetupCache.class, MeetupSpatialIndex.class,
+                GeofenceEngine.class, LocationHistoryWriter.class);
+        context.refresh();
+        context.getBean(SocketIOServer.class).start();
+    }
+
+    int port() {
+        return port;
+    }
+
+    <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    InMemoryStore store() {
+        return context.getBean(InMemoryStore.class);
+    }
+
+    /** Adds the user and returns a token for it. */
+    String login(String userId) {
+        store().users.put(userId, User.builder().id(userId).username(userId).email(userId + "@example.com").build());
+        return token(userId);
+    }
+
+    /** A valid token, whether or not the user exists. */
+    String token(String userId) {
+        return bean(JwtUtil.class).generateToken(userId);
+    }
+
+    @Override
+    public void close() {
+        context.getBean(SocketIOServer.class).stop();
+        context.close();
+    }
+
+    private static int freePort() throws IOException {
+        // The socket port is server.port + 1, so any free port above 1 will do
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /**
+     * Users and meetups served from maps instead of MongoDB. Lookups can be slowed down to stand
+     * in for a loaded database.
+     */
+    static class InMemoryStore {
+
+        final Map<String, User> users = new ConcurrentHashMap<>();
+        final Map<String, Meetup> meetups = new ConcurrentHashMap<>();
+        volatile long userLookupMillis;
+        volatile long meetupLookupMillis;
+
+        @Bean
+        public UserRepository userRepository() {
+            UserRepository repository = Mockito.mock(UserRepository.class, Mockito.withSettings().stubOnly());
+            Mockito.when(repository.findPrincipalById(Mockito.anyString())).thenAnswer(call -> {
+                if (userLookupMillis > 0) {
+                    Thread.sleep(userLookupMillis);
+                }
+                return Optional.ofNullable(users.get(call.<String>getArgument(0)));
+            });
+            return repository;
+        }
+
+        @Bean
+        public MeetupRepository meetupRepository() {
+            MeetupRepository repository = Mockito.mock(MeetupRepository.class, Mockito.withSettings().stubOnly());
+            Mockito.when(repository.findTrackingSnapshotById(Mockito.anyString()))
+                    .thenAnswer(call -> {
+                        if (meetupLookupMillis > 0) {
+                            Thread.sleep(meetupLookupMillis);
+                        }
+                        return Optional.ofNullable(meetups.get(call.<String>getArgument(0)));
+                    });
+            return repository;
+        }
+
+        // Only injected; history writes are disabled
+        @Bean
+        public MongoTemplate mongoTemplate() {
+            return Mockito.mock(MongoTemplate.class, Mockito.withSettings().stubOnly());
+        }
+    }
+}